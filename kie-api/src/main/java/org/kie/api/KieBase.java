@@ -17,6 +17,7 @@
 package org.kie.api;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
 
 import org.kie.api.definition.KiePackage;
@@ -28,6 +29,7 @@ import org.kie.api.event.kiebase.KieBaseEventManager;
 import org.kie.api.runtime.Environment;
 import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.KieSessionConfiguration;
+import org.kie.api.runtime.KieSessionsPool;
 import org.kie.api.runtime.StatelessKieSession;
 
 /**
@@ -164,6 +166,12 @@ public interface KieBase extends KieBaseEventManager {
      */
     KieSession newKieSession();
 
+    /**
+     * Creates a pool of {@link KieSession}s of this {@link KieBase}, initially containing the given number of sessions.
+     * The sessions obtained from the pool are reset and reused when disposed, instead of being discarded.
+     */
+    KieSessionsPool newKieSessionsPool( int initialSize );
+
     /**
      * Returns a collection of the {@link KieSession}s that exist in this {@link KieBase}.
      * Be careful as sessions are not thread-safe and could be in use elsewhere.
@@ -197,4 +205,21 @@ public interface KieBase extends KieBaseEventManager {
      */
     Set<String> getEntryPointIds();
 
+    /**
+     * Warms up this {@link KieBase} before it starts serving requests, eagerly jitting all its constraints.
+     * @see #warmUp(Collection)
+     */
+    default KieBaseWarmUpReport warmUp() {
+        return warmUp( Collections.emptyList() );
+    }
+
+    /**
+     * Warms up this {@link KieBase} before it starts serving requests: all its constraints are eagerly jitted,
+     * regardless of the configured jitting threshold, and the given sample facts are inserted in a throwaway
+     * {@link KieSession} on which all the rules are fired, so that the network code is exercised before the first
+     * real session is created. The throwaway session is disposed when the warm up completes.
+     * @param sampleFacts the facts to be replayed, possibly recorded from a previous run. Can be empty
+     * @return a report of the time spent and of what has been covered by the warm up
+     */
+    KieBaseWarmUpReport warmUp( Collection<?> sampleFacts );
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.api;
+
+import java.util.Collection;
+
+/**
+ * The outcome of the warm up of a {@link KieBase}
+ * @see KieBase#warmUp(Collection)
+ */
+public interface KieBaseWarmUpReport {
+
+    /**
+     * Returns the name of the warmed up KieBase
+     */
+    String getKieBaseName();
+
+    /**
+     * Returns the time spent to warm up the KieBase in milliseconds
+     */
+    long getWarmUpTime();
+
+    /**
+     * Returns the number of constraints that have been eagerly jitted
+     */
+    int getJittedConstraints();
+
+    /**
+     * Returns the number of constraints that couldn't be jitted and will still be interpreted
+     */
+    int getInterpretedConstraints();
+
+    /**
+     * Returns the number of sample facts inserted in the throwaway session used for the warm up
+     */
+    int getReplayedFacts();
+
+    /**
+     * Returns the names of the rules fired while replaying the sample facts
+     */
+    Collection<String> getFiredRules();
+}
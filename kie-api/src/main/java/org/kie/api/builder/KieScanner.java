@@ -19,6 +19,7 @@ package org.kie.api.builder;
 import java.util.Collection;
 
 import org.kie.api.event.kiescanner.KieScannerEventListener;
+import org.kie.api.runtime.KieContainerUpdateMode;
 
 /**
  * A KieScanner is a scanner of the maven repositories (both local and remote)
@@ -54,6 +55,12 @@ public interface KieScanner {
      */
     void scanNow();
 
+    /**
+     * Sets how the KieContainer is updated when a new release is found.
+     * If not set, {@link KieContainerUpdateMode#getDefault()} is used.
+     */
+    void setUpdateMode(KieContainerUpdateMode mode);
+
     /**
      * Add an event listener.
      *
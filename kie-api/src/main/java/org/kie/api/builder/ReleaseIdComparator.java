@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ReleaseIdComparator implements Comparator<ReleaseId> {
 
@@ -54,8 +55,8 @@ public class ReleaseIdComparator implements Comparator<ReleaseId> {
             if (result == 0) {
                 result = o1.getArtifactId().compareTo(o2.getArtifactId());
                 if (result == 0) {
-                    result = new ComparableVersion(o1.getVersion()).compareTo(
-                             new ComparableVersion(o2.getVersion()) );
+                    result = ComparableVersion.cached(o1.getVersion()).compareTo(
+                             ComparableVersion.cached(o2.getVersion()) );
                 }
             }
             if (result != 0 && SortDirection.DESCENDING.equals(sortDirection)) {
@@ -83,12 +84,22 @@ public class ReleaseIdComparator implements Comparator<ReleaseId> {
 
     public static class ComparableVersion implements Comparable<ComparableVersion> {
 
+        private static final int MAX_CACHE_SIZE = 10000;
+
+        private static final Map<String, ComparableVersion> CACHE = new ConcurrentHashMap<>();
+
         private String value;
 
         private String canonical;
 
         private ListItem items;
 
+        /**
+         * The numeric segments of a version made only of numbers fitting a long, e.g. 1.2.3 or 7.8.0.Final,
+         * or null for any other version. Two versions having it are compared without walking their items.
+         */
+        private long[] numericKey;
+
         private interface Item {
 
             int INTEGER_ITEM = 0;
@@ -104,18 +115,35 @@ public class ReleaseIdComparator implements Comparator<ReleaseId> {
 
         private static class IntegerItem implements Item {
 
-            private static final BigInteger BigInteger_ZERO = new BigInteger("0");
+            /* Numbers with up to 18 digits always fit a long */
+            private static final int MAX_LONG_DIGITS = 18;
 
-            private final BigInteger value;
+            private final long value;
+
+            /* only used when the number doesn't fit a long */
+            private final BigInteger bigValue;
 
             public static final IntegerItem ZERO = new IntegerItem();
 
             private IntegerItem() {
-                this.value = BigInteger_ZERO;
+                this.value = 0;
+                this.bigValue = null;
             }
 
             public IntegerItem(String str) {
-                this.value = new BigInteger(str);
+                if (str.length() <= MAX_LONG_DIGITS) {
+                    this.value = Long.parseLong(str);
+                    this.bigValue = null;
+                } else {
+                    BigInteger big = new BigInteger(str);
+                    if (big.bitLength() < Long.SIZE) {
+                        this.value = big.longValue();
+                        this.bigValue = null;
+                    } else {
+                        this.value = 0;
+                        this.bigValue = big;
+                    }
+                }
             }
 
             public int getType() {
@@ -123,19 +151,31 @@ public class ReleaseIdComparator implements Comparator<ReleaseId> {
             }
 
             public boolean isNull() {
-                return BigInteger_ZERO.equals(value);
+                return bigValue == null && value == 0;
+            }
+
+            private boolean isLong() {
+                return bigValue == null;
+            }
+
+            private BigInteger toBigInteger() {
+                return bigValue != null ? bigValue : BigInteger.valueOf(value);
             }
 
             public int compareTo(Item item) {
                 if (item == null)
                 {
-                    return BigInteger_ZERO.equals(value) ? 0 : 1; // 1.0 == 1, 1.1 > 1
+                    return isNull() ? 0 : 1; // 1.0 == 1, 1.1 > 1
                 }
 
                 switch (item.getType())
                 {
                     case INTEGER_ITEM:
-                        return value.compareTo(((IntegerItem) item).value);
+                        IntegerItem other = (IntegerItem) item;
+                        if (isLong() && other.isLong()) {
+                            return Long.compare(value, other.value);
+                        }
+                        return toBigInteger().compareTo(other.toBigInteger());
 
                     case STRING_ITEM:
                         return 1; // 1.1 > 1-sp
@@ -149,7 +189,7 @@ public class ReleaseIdComparator implements Comparator<ReleaseId> {
             }
 
             public String toString() {
-                return value.toString();
+                return bigValue != null ? bigValue.toString() : Long.toString(value);
             }
         }
 
@@ -329,6 +369,37 @@ public class ReleaseIdComparator implements Comparator<ReleaseId> {
             parseVersion(version);
         }
 
+        private ComparableVersion(ComparableVersion parsed) {
+            this.value = parsed.value;
+            this.canonical = parsed.canonical;
+            this.items = parsed.items;
+            this.numericKey = parsed.numericKey;
+        }
+
+        /**
+         * Returns the parsed version of the given String, copied from a cached one when available.
+         * The returned instance is a new one, so it can be modified through {@link #parseVersion(String)}.
+         */
+        public static ComparableVersion parse(String version) {
+            return new ComparableVersion(cached(version));
+        }
+
+        /**
+         * Returns the cached parsed version of the given String: it's shared, so it must never be exposed.
+         * Its items are never modified after parsing, so they can be shared with the copies returned by {@link #parse(String)}.
+         */
+        static ComparableVersion cached(String version) {
+            ComparableVersion parsed = CACHE.get(version);
+            if (parsed == null) {
+                if (CACHE.size() >= MAX_CACHE_SIZE) {
+                    CACHE.clear();
+                }
+                parsed = new ComparableVersion(version);
+                CACHE.putIfAbsent(version, parsed);
+            }
+            return parsed;
+        }
+
         public final void parseVersion(String version) {
             this.value = version;
 
@@ -402,6 +473,31 @@ public class ReleaseIdComparator implements Comparator<ReleaseId> {
             }
 
             canonical = items.toString();
+            numericKey = toNumericKey(items);
+        }
+
+        private static long[] toNumericKey(ListItem items) {
+            long[] key = new long[items.size()];
+            for (int i = 0; i < key.length; i++) {
+                Item item = items.get(i);
+                if (item.getType() != Item.INTEGER_ITEM || !((IntegerItem) item).isLong()) {
+                    return null;
+                }
+                key[i] = ((IntegerItem) item).value;
+            }
+            return key;
+        }
+
+        private static int compareNumericKeys(long[] left, long[] right) {
+            int length = Math.min(left.length, right.length);
+            for (int i = 0; i < length; i++) {
+                int result = Long.compare(left[i], right[i]);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            // trailing zeros are normalized away, so the longer version is the greater one
+            return Integer.compare(left.length, right.length);
         }
 
         private static Item parseItem(boolean isDigit, String buf) {
@@ -409,6 +505,9 @@ public class ReleaseIdComparator implements Comparator<ReleaseId> {
         }
 
         public int compareTo(ComparableVersion o) {
+            if (numericKey != null && o.numericKey != null) {
+                return compareNumericKeys(numericKey, o.numericKey);
+            }
             return items.compareTo(o.items);
         }
 
@@ -154,4 +154,18 @@ public interface KieBaseModel {
      * and all the defaults are disabled so all the KieBases will be accessible only by name
      */
     KieBaseModel setDefault(boolean isDefault);
+
+    /**
+     * Returns true if the KieBase generated from this KieBaseModel has to be warmed up before the
+     * KieContainer is made available
+     */
+    boolean isWarmUp();
+
+    /**
+     * Sets if the KieBase generated from this KieBaseModel has to be warmed up, eagerly jitting all its
+     * constraints, before the KieContainer is made available.
+     * Default is false
+     * @see org.kie.api.KieBase#warmUp()
+     */
+    KieBaseModel setWarmUp(boolean warmUp);
 }
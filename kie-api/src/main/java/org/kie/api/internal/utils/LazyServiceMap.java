@@ -0,0 +1,226 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.api.internal.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-only view over the discovered services used when lazy instantiation is enabled.
+ * The values of the wrapped map can be either service instances or {@link LazyService}s, the latter being
+ * instantiated, together with their children, only when they are looked up for the first time.
+ * Iterating the entries doesn't instantiate the services: only reading the value of an entry does.
+ */
+class LazyServiceMap extends AbstractMap<String, Object> {
+
+    private static final Logger log = LoggerFactory.getLogger( LazyServiceMap.class );
+
+    private final Map<String, Object> services;
+
+    LazyServiceMap( Map<String, Object> services ) {
+        this.services = services;
+    }
+
+    @Override
+    public Object get( Object key ) {
+        return resolve( services.get( key ) );
+    }
+
+    /**
+     * An optional service is instantiated to check if it is available, since one that can't be instantiated is
+     * absent, as it happens with eager instantiation. A mandatory service is contained without being instantiated,
+     * and a failure instantiating it is only reported when it is looked up.
+     */
+    @Override
+    public boolean containsKey( Object key ) {
+        Object value = services.get( key );
+        if ( value instanceof LazyService && ( (LazyService) value ).optional ) {
+            return ( (LazyService) value ).get() != null;
+        }
+        return value != null;
+    }
+
+    @Override
+    public int size() {
+        return services.size();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                Iterator<Entry<String, Object>> iterator = services.entrySet().iterator();
+                return new Iterator<Entry<String, Object>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        return new LazyEntry( iterator.next() );
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return services.size();
+            }
+        };
+    }
+
+    /**
+     * An entry instantiating its service only when its value is read
+     */
+    private static class LazyEntry extends SimpleImmutableEntry<String, Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        private LazyEntry( Entry<String, Object> entry ) {
+            super( entry );
+        }
+
+        @Override
+        public Object getValue() {
+            return resolve( super.getValue() );
+        }
+
+        @Override
+        public boolean equals( Object o ) {
+            if ( !( o instanceof Entry ) ) {
+                return false;
+            }
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            return getKey().equals( e.getKey() ) && Objects.equals( getValue(), e.getValue() );
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode( getValue() );
+        }
+    }
+
+    private static Object resolve( Object value ) {
+        return value instanceof LazyService ? ( (LazyService) value ).get() : value;
+    }
+
+    static class LazyService implements Supplier<Object> {
+
+        private static final Object UNRESOLVED = new Object();
+        private static final Object UNAVAILABLE = new Object();
+
+        private final ClassLoader classLoader;
+        private final String className;
+        private final boolean optional;
+        private final ServiceDiscoveryReport report;
+
+        private List<LazyService> children;
+
+        /* UNRESOLVED until the first lookup, UNAVAILABLE if an optional service couldn't be instantiated */
+        private final AtomicReference<Object> instance = new AtomicReference<>( UNRESOLVED );
+
+        LazyService( ClassLoader classLoader, String className, boolean optional ) {
+            this( classLoader, className, optional, null );
+        }
+
+        LazyService( ClassLoader classLoader, String className, boolean optional, ServiceDiscoveryReport report ) {
+            this.classLoader = classLoader;
+            this.className = className;
+            this.optional = optional;
+            this.report = report;
+        }
+
+        synchronized void addChildren( List<LazyService> services ) {
+            if (children == null) {
+                children = new ArrayList<>();
+            }
+            children.addAll( services );
+        }
+
+        /**
+         * Returns the service, instantiating it on the first lookup. The instance is created without holding
+         * any lock, so that services looking each other up while being created can't deadlock, and then published
+         * atomically: if more threads create it at the same time, all of them get the first published instance.
+         */
+        @Override
+        public Object get() {
+            Object current = instance.get();
+            if (current == UNRESOLVED) {
+                Object created = createInstance();
+                instance.compareAndSet( UNRESOLVED, created != null ? created : UNAVAILABLE );
+                current = instance.get();
+            }
+            return current != UNAVAILABLE ? current : null;
+        }
+
+        private Object createInstance() {
+            Object service;
+            long start = System.nanoTime();
+            try {
+                service = Class.forName( className, true, classLoader ).newInstance();
+            } catch (Throwable t) {
+                if (optional) {
+                    log.info( "Cannot load service: " + className );
+                    return null;
+                }
+                throw new RuntimeException( "Cannot create instance of class: " + className, t );
+            } finally {
+                if (report != null) {
+                    report.addServiceTime( className, System.nanoTime() - start );
+                }
+            }
+            List<LazyService> serviceChildren = getChildren();
+            if (serviceChildren != null) {
+                for (LazyService child : serviceChildren) {
+                    Object childService = child.get();
+                    if (childService != null) {
+                        addChild( service, childService );
+                    }
+                }
+            }
+            return service;
+        }
+
+        private synchronized List<LazyService> getChildren() {
+            return children;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static void addChild( Object service, Object child ) {
+            ( (Consumer<Object>) service ).accept( child );
+        }
+
+        @Override
+        public String toString() {
+            return "LazyService[" + className + "]";
+        }
+    }
+}
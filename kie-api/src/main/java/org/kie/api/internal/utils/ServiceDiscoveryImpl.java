@@ -16,15 +16,28 @@
 
 package org.kie.api.internal.utils;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import org.slf4j.Logger;
@@ -33,14 +46,44 @@ import org.slf4j.LoggerFactory;
 public class ServiceDiscoveryImpl {
     private static final Logger log = LoggerFactory.getLogger( ServiceDiscoveryImpl.class );
 
-    private final String fileName = "kie.conf";
+    static final String CONF_PATH = "META-INF/kie.conf";
 
-    private final String path =  "META-INF/" + fileName;
+    /**
+     * Merged and pre-validated kie.conf generated by the {@link ServiceIndexGenerator}. When present it replaces
+     * the scanning of all the kie.conf on the classpath. If more than one index is found they are merged.
+     */
+    static final String INDEX_PATH = "META-INF/kie.index.conf";
+
+    /**
+     * The prefix of the entries of an index recording the kie.conf it has been generated from, as the SHA-256 of
+     * their content followed by their URL. The entries taken from the n-th kie.conf are prefixed by n and a slash.
+     * The indexes are used only if all the recorded kie.conf still have the same content, otherwise, e.g. when a
+     * jar has been replaced without regenerating them, they are ignored and the kie.conf are scanned.
+     */
+    static final String INDEX_SOURCE_KEY = "kie.index.source.";
+
+    /**
+     * When set to true the services declared in the kie.conf files are instantiated only when looked up
+     * for the first time, instead of during the discovery.
+     */
+    public static final String LAZY_INSTANTIATION_PROPERTY = "org.kie.services.lazy";
+
+    /**
+     * When set to true the kie.conf files are read and parsed in parallel and the classes of the services they
+     * declare are loaded concurrently, without being initialized. The services are then instantiated, registered
+     * and wired on the discovering thread in the declaration order, as in the serial discovery, so their static
+     * initializers and constructors can safely look up other services.
+     */
+    public static final String PARALLEL_LOADING_PROPERTY = "org.kie.services.parallel";
 
     private ClassLoader classloader;
 
     private ServiceDiscoveryImpl() {}
 
+    ServiceDiscoveryImpl( ClassLoader classloader ) {
+        this.classloader = classloader;
+    }
+
     private static class LazyHolder {
         static final ServiceDiscoveryImpl INSTANCE = new ServiceDiscoveryImpl();
     }
@@ -50,10 +93,14 @@ public class ServiceDiscoveryImpl {
     }
 
     private Map<String, Object>     services   = new HashMap<>();
-    private Map<String, List<?>>    childServices = new HashMap<>();
+    private Map<String, List<Object>> childServices = new HashMap<>();
     private boolean                 sealed     = false;
     private boolean                 kiecConfDiscoveryAllowed = true;
+    private boolean                 lazyInstantiation = Boolean.getBoolean( LAZY_INSTANTIATION_PROPERTY );
+    private boolean                 parallelLoading = Boolean.getBoolean( PARALLEL_LOADING_PROPERTY );
     private Map<String, Object>     cachedServices = new HashMap<String, Object>();
+    private Map<String, Class<?>>   preLoadedClasses = new ConcurrentHashMap<>();
+    private ServiceDiscoveryReport  report = new ServiceDiscoveryReport();
 
     public synchronized boolean isKiecConfDiscoveryAllowed() {
         return kiecConfDiscoveryAllowed;
@@ -63,6 +110,29 @@ public class ServiceDiscoveryImpl {
         this.kiecConfDiscoveryAllowed = kiecConfDiscoveryAllowed;
     }
 
+    public synchronized boolean isLazyInstantiation() {
+        return lazyInstantiation;
+    }
+
+    public synchronized void setLazyInstantiation(boolean lazyInstantiation) {
+        if (sealed) {
+            throw new IllegalStateException("Unable to change the instantiation mode once the ServiceDiscovery is sealed");
+        }
+        this.lazyInstantiation = lazyInstantiation;
+    }
+
+    public synchronized boolean isParallelLoading() {
+        return parallelLoading;
+    }
+
+    public synchronized void setParallelLoading(boolean parallelLoading) {
+        this.parallelLoading = parallelLoading;
+    }
+
+    public synchronized ServiceDiscoveryReport getReport() {
+        return report;
+    }
+
     public <T> void addService(Class<T> serviceClass, T service) {
         addService( serviceClass.getCanonicalName(), service );
     }
@@ -77,32 +147,217 @@ public class ServiceDiscoveryImpl {
 
     public synchronized void reset() {
         cachedServices = new HashMap<String, Object>();
+        report = new ServiceDiscoveryReport();
         sealed = false;
     }
 
     public synchronized Map<String, Object> getServices() {
         if (!sealed) {
+            long start = System.nanoTime();
             if (kiecConfDiscoveryAllowed) {
-                Enumeration<URL> confResources = null;
-                try {
-                    confResources = getClassLoader().getResources(path);
-                } catch (Exception e) {
-                    new IllegalStateException("Discovery started, but no kie.conf's found");
-                }
-                if (confResources != null) {
-                    while (confResources.hasMoreElements()) {
-                        registerConfs( getClassLoader(), confResources.nextElement() );
-                    }
+                List<Properties> indexes = loadIndexes();
+                if (indexes != null) {
+                    processKieConfs( getClassLoader(), indexes );
+                } else {
+                    scanConfs();
                 }
                 buildMap();
             }
 
-            cachedServices = Collections.unmodifiableMap( cachedServices );
+            cachedServices = lazyInstantiation ?
+                             new LazyServiceMap( cachedServices ) :
+                             Collections.unmodifiableMap( cachedServices );
             sealed = true;
+
+            report.setTotalTime( System.nanoTime() - start );
+            if (log.isDebugEnabled()) {
+                log.debug( report.toString() );
+            }
         }
         return cachedServices;
     }
 
+    private List<Properties> loadIndexes() {
+        List<URL> indexUrls;
+        try {
+            indexUrls = Collections.list( getClassLoader().getResources( INDEX_PATH ) );
+        } catch (IOException e) {
+            log.warn( "Cannot read the kie.conf indexes, scanning the kie.conf files", e );
+            return null;
+        }
+        if (indexUrls.isEmpty()) {
+            return null;
+        }
+
+        // the kie.conf recorded by more than one index are processed only once
+        Map<String, Properties> confs = new LinkedHashMap<>();
+        for (URL url : indexUrls) {
+            Properties index = loadConfs( url );
+            String source = index.getProperty( INDEX_SOURCE_KEY + 0 );
+            if (source == null) {
+                log.warn( "Invalid kie.conf index {}, scanning the kie.conf files", url );
+                return null;
+            }
+            for (int i = 0; source != null; source = index.getProperty( INDEX_SOURCE_KEY + ++i )) {
+                if (confs.containsKey( source )) {
+                    continue;
+                }
+                if (!isCurrent( source )) {
+                    log.warn( "The kie.conf index {} is stale for {}, scanning the kie.conf files", url, source );
+                    return null;
+                }
+                String prefix = i + "/";
+                Properties conf = new Properties();
+                index.forEach( (k, v) -> {
+                    if (k.toString().startsWith( prefix )) {
+                        conf.put( k.toString().substring( prefix.length() ), v );
+                    }
+                } );
+                confs.put( source, conf );
+            }
+        }
+        return new ArrayList<>( confs.values() );
+    }
+
+    /**
+     * Checks that the kie.conf recorded by an index entry is still available with the same content
+     */
+    private static boolean isCurrent( String source ) {
+        int separator = source.indexOf( ' ' );
+        if (separator < 0) {
+            return false;
+        }
+        try {
+            return source.substring( 0, separator ).equals( hash( new URL( source.substring( separator + 1 ) ) ) );
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the hex encoded SHA-256 of the content of the given URL
+     */
+    static String hash( URL url ) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance( "SHA-256" );
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException( e );
+        }
+        URLConnection connection = url.openConnection();
+        // a cached jar would hide the replacement of the file
+        connection.setUseCaches( false );
+        try (InputStream is = connection.getInputStream()) {
+            byte[] buffer = new byte[4096];
+            for (int read = is.read( buffer ); read >= 0; read = is.read( buffer )) {
+                digest.update( buffer, 0, read );
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+        }
+        return sb.toString();
+    }
+
+    private void scanConfs() {
+        Enumeration<URL> confResources = null;
+        try {
+            confResources = getClassLoader().getResources(CONF_PATH);
+        } catch (Exception e) {
+            new IllegalStateException("Discovery started, but no kie.conf's found");
+        }
+        if (confResources != null) {
+            if (parallelLoading) {
+                parallelRegisterConfs( getClassLoader(), Collections.list( confResources ) );
+            } else {
+                while (confResources.hasMoreElements()) {
+                    registerConfs( getClassLoader(), confResources.nextElement() );
+                }
+            }
+        }
+    }
+
+    private void parallelRegisterConfs( ClassLoader classLoader, List<URL> urls ) {
+        List<Callable<Properties>> loads = new ArrayList<>();
+        urls.forEach( url -> loads.add( () -> loadConfs( url ) ) );
+        processKieConfs( classLoader, runInParallel( classLoader, loads ) );
+    }
+
+    private void processKieConfs( ClassLoader classLoader, List<Properties> confs ) {
+        if (parallelLoading) {
+            report.setParallel( true );
+            if (!lazyInstantiation) {
+                // classes are only loaded here, without running their static initializers: the services are
+                // instantiated, registered and wired by processKieConf following the order of the serial discovery
+                List<Callable<Class<?>>> loads = new ArrayList<>();
+                confs.stream()
+                     .flatMap( props -> props.values().stream() )
+                     .flatMap( v -> Arrays.stream( v.toString().split( "," ) ) )
+                     .filter( value -> !(value.isEmpty() || value.contains( "[" )) )
+                     .map( value -> value.startsWith( "+" ) ? value.substring( 1 ) : value )
+                     .distinct()
+                     .forEach( className -> loads.add( () -> preLoad( classLoader, className ) ) );
+                runInParallel( classLoader, loads );
+            }
+        }
+        try {
+            confs.forEach( props -> processKieConf( classLoader, props ) );
+        } finally {
+            preLoadedClasses.clear();
+        }
+    }
+
+    /**
+     * Runs the given tasks on dedicated threads having the given ClassLoader as context ClassLoader, like the
+     * discovering thread, and returns their results in the same order as the tasks
+     */
+    private static <T> List<T> runInParallel( ClassLoader classLoader, List<Callable<T>> tasks ) {
+        if (tasks.isEmpty()) {
+            return Collections.emptyList();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool( Math.min( tasks.size(), Runtime.getRuntime().availableProcessors() ),
+                                                                 r -> new DiscoveryThread( r, "kie-service-discovery-" + counter.incrementAndGet(), classLoader ) );
+        try {
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : executor.invokeAll( tasks )) {
+                results.add( future.get() );
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while discovering services", e );
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException( e.getCause() );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class DiscoveryThread extends Thread {
+
+        private DiscoveryThread( Runnable runnable, String name, ClassLoader classLoader ) {
+            super( runnable, name );
+            setDaemon( true );
+            setContextClassLoader( classLoader );
+        }
+    }
+
+    private Class<?> preLoad( ClassLoader classLoader, String className ) {
+        try {
+            Class<?> clazz = Class.forName( className, false, classLoader );
+            preLoadedClasses.put( className, clazz );
+            return clazz;
+        } catch (ClassNotFoundException | LinkageError e) {
+            // failures are reported, or ignored for optional services, when the service is instantiated
+            return null;
+        }
+    }
+
     public void registerConfs( ClassLoader classLoader, URL url ) {
         log.info("Loading kie.conf from  ", classLoader);
         Properties props = loadConfs( url );
@@ -111,6 +366,7 @@ public class ServiceDiscoveryImpl {
 
     private Properties loadConfs(URL url) {
         // iterate urls, then for each url split the service key and attempt to register each service
+        long start = System.nanoTime();
         Properties props = new Properties();
         try (InputStream is = url.openStream()) {
             props.load( is );
@@ -118,6 +374,7 @@ public class ServiceDiscoveryImpl {
         } catch (Exception exc) {
             throw new RuntimeException("Unable to build kie service url = " + url.toExternalForm(), exc);
         }
+        report.addConfTime( url.toExternalForm(), System.nanoTime() - start );
         return props;
     }
 
@@ -129,12 +386,11 @@ public class ServiceDiscoveryImpl {
                 if (!(value.isEmpty() || value.contains("["))) { // DROOLS-2122: parsing with Properties.load a Drools version 6 kie.conf, hence skipping this entry
                     boolean optional = key.startsWith( "?" );
                     try {
-                        processKieService( classLoader, optional ? key.substring( 1 ) : key, value );
+                        processKieService( classLoader, optional ? key.substring( 1 ) : key, value, optional );
                     } catch (RuntimeException e) {
                         if (optional) {
                             log.info("Cannot load service: " + key.substring( 1 ));
                         } else {
-                            System.out.println("Loading failed because " + e.getMessage());
                             throw e;
                         }
                     }
@@ -148,21 +404,44 @@ public class ServiceDiscoveryImpl {
         boolean process(ClassLoader classLoader, String key, String value);
     }
 
-    private void processKieService(ClassLoader classLoader, String key, String value) {
+    private void processKieService(ClassLoader classLoader, String key, String value, boolean optional) {
         if (value.startsWith( "+" )) {
             childServices.computeIfAbsent( key, k -> new ArrayList<>() )
-                         .add( newInstance( classLoader, value.substring( 1 ) ) );
+                         .add( createService( classLoader, value.substring( 1 ), optional ) );
         } else {
-            services.put( key, newInstance( classLoader, value ) );
+            services.put( key, createService( classLoader, value, optional ) );
         }
         log.info( "Adding Service {}\n", value );
     }
 
+    private Object createService( ClassLoader classLoader, String className, boolean optional ) {
+        if (!lazyInstantiation) {
+            return newInstance( classLoader, className );
+        }
+        if (optional) {
+            // like in the eager case a missing optional service is not registered at all:
+            // checking that its class exists doesn't require to initialize it
+            try {
+                Class.forName( className, false, classLoader );
+            } catch (ClassNotFoundException | LinkageError e) {
+                throw new RuntimeException( "Cannot find class: " + className, e );
+            }
+        }
+        return new LazyServiceMap.LazyService( classLoader, className, optional, report );
+    }
+
     private <T> T newInstance( ClassLoader classLoader, String className ) {
+        long start = System.nanoTime();
         try {
-            return (T) Class.forName( className, true, classLoader ).newInstance();
+            Class<?> clazz = preLoadedClasses.get( className );
+            if (clazz == null) {
+                clazz = Class.forName( className, true, classLoader );
+            }
+            return (T) clazz.newInstance();
         } catch (Throwable t) {
             throw new RuntimeException( "Cannot create instance of class: " + className, t );
+        } finally {
+            report.addServiceTime( className, System.nanoTime() - start );
         }
     }
 
@@ -181,6 +460,11 @@ public class ServiceDiscoveryImpl {
             cachedServices.put(serviceEntry.getKey(), serviceEntry.getValue());
             List<?> children = childServices.remove( serviceEntry.getKey() );
             if (children != null) {
+                if (serviceEntry.getValue() instanceof LazyServiceMap.LazyService) {
+                    // children are wired only when the parent is looked up for the first time
+                    ( (LazyServiceMap.LazyService) serviceEntry.getValue() ).addChildren( (List) children );
+                    continue;
+                }
                 for (Object child : children) {
                     ( (Consumer) serviceEntry.getValue() ).accept( child );
                 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.api.internal.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings collected by the {@link ServiceDiscoveryImpl} while discovering the services: the time spent to load
+ * and parse each kie.conf and the time spent to instantiate each service class, all in nanoseconds.
+ */
+public class ServiceDiscoveryReport {
+
+    private final Map<String, Long> confTimes = new LinkedHashMap<>();
+    private final Map<String, Long> serviceTimes = new LinkedHashMap<>();
+    private long totalTime;
+    private boolean parallel;
+
+    synchronized void addConfTime( String url, long nanos ) {
+        confTimes.merge( url, nanos, Long::sum );
+    }
+
+    synchronized void addServiceTime( String className, long nanos ) {
+        serviceTimes.merge( className, nanos, Long::sum );
+    }
+
+    synchronized void setTotalTime( long nanos ) {
+        this.totalTime = nanos;
+    }
+
+    synchronized void setParallel( boolean parallel ) {
+        this.parallel = parallel;
+    }
+
+    public synchronized Map<String, Long> getConfTimes() {
+        return Collections.unmodifiableMap( new LinkedHashMap<>( confTimes ) );
+    }
+
+    public synchronized Map<String, Long> getServiceTimes() {
+        return Collections.unmodifiableMap( new LinkedHashMap<>( serviceTimes ) );
+    }
+
+    public synchronized long getTotalTime() {
+        return totalTime;
+    }
+
+    public synchronized boolean isParallel() {
+        return parallel;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder( "Service discovery took " ).append( toMillis( totalTime ) ).append( "ms" )
+                .append( parallel ? " (parallel)" : "" ).append( '\n' );
+        append( sb, "kie.conf", confTimes );
+        append( sb, "service", serviceTimes );
+        return sb.toString();
+    }
+
+    private static void append( StringBuilder sb, String label, Map<String, Long> times ) {
+        List<Map.Entry<String, Long>> sorted = new ArrayList<>( times.entrySet() );
+        sorted.sort( Map.Entry.<String, Long>comparingByValue().reversed() );
+        for (Map.Entry<String, Long> entry : sorted) {
+            sb.append( "  " ).append( label ).append( ' ' ).append( entry.getKey() )
+              .append( ": " ).append( toMillis( entry.getValue() ) ).append( "ms\n" );
+        }
+    }
+
+    private static double toMillis( long nanos ) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos( 1 );
+    }
+}
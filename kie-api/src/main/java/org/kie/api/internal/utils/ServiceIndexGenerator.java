@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.api.internal.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Build time generator of the merged kie.conf index.
+ *
+ * It reads all the META-INF/kie.conf files visible from a given ClassLoader, checks that every mandatory service
+ * class can be found, drops the optional ones that aren't available, and writes the result as a single
+ * {@link ServiceDiscoveryImpl#INDEX_PATH} file, recording the URL and the content hash of each kie.conf.
+ * When that file is on the classpath the ServiceDiscoveryImpl loads it instead of scanning all the kie.conf
+ * resources, provided that the recorded kie.conf are still found at the same URLs with the same content.
+ *
+ * Since the kie.conf are identified by their URLs, the index has to be generated against the classpath it will
+ * be used with, e.g. while building the container image of an application, by running this class with that
+ * classpath and the output folder as first argument, and then prepending the output folder to the classpath.
+ * The kie-internal build runs it on its test classpath, checking that the services it declares can be found.
+ */
+public class ServiceIndexGenerator {
+
+    private final ClassLoader classLoader;
+
+    public ServiceIndexGenerator( ClassLoader classLoader ) {
+        this.classLoader = classLoader;
+    }
+
+    public static void main( String[] args ) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException( "Usage: ServiceIndexGenerator <output folder>" );
+        }
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        new ServiceIndexGenerator( classLoader != null ? classLoader : ClassLoader.getSystemClassLoader() )
+                .generate( new File( args[0] ) );
+    }
+
+    public File generate( File outputFolder ) throws IOException {
+        Map<String, String> index = buildIndex();
+        File indexFile = new File( outputFolder, ServiceDiscoveryImpl.INDEX_PATH );
+        Files.createDirectories( indexFile.getParentFile().toPath() );
+        try (OutputStream os = Files.newOutputStream( indexFile.toPath() )) {
+            write( index, os );
+        }
+        return indexFile;
+    }
+
+    /**
+     * Returns the entries of the index: for each kie.conf the one recording its content hash and URL,
+     * followed by its valid services prefixed by its position
+     */
+    public Map<String, String> buildIndex() throws IOException {
+        Map<String, String> index = new LinkedHashMap<>();
+        Enumeration<URL> confResources = classLoader.getResources( ServiceDiscoveryImpl.CONF_PATH );
+        for (int i = 0; confResources.hasMoreElements(); i++) {
+            URL url = confResources.nextElement();
+            index.put( ServiceDiscoveryImpl.INDEX_SOURCE_KEY + i, ServiceDiscoveryImpl.hash( url ) + " " + url.toExternalForm() );
+            Properties props = new Properties();
+            try (InputStream is = url.openStream()) {
+                props.load( is );
+            }
+            String prefix = i + "/";
+            props.forEach( (k, v) -> {
+                String key = k.toString();
+                for (String value : v.toString().split( "," )) {
+                    value = value.trim();
+                    // DROOLS-2122: skipping Drools version 6 kie.conf entries, as ServiceDiscoveryImpl does
+                    if (!(value.isEmpty() || value.contains( "[" )) && isValid( url, key, value )) {
+                        index.merge( prefix + key, value, (v1, v2) -> v1 + "," + v2 );
+                    }
+                }
+            } );
+        }
+        return index;
+    }
+
+    private boolean isValid( URL url, String key, String value ) {
+        String className = value.startsWith( "+" ) ? value.substring( 1 ) : value;
+        try {
+            Class.forName( className, false, classLoader );
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            if (key.startsWith( "?" )) {
+                return false;
+            }
+            throw new IllegalStateException( "Cannot find class " + className + " of service " + key + " declared in " + url, e );
+        }
+    }
+
+    private static void write( Map<String, String> index, OutputStream os ) throws IOException {
+        Writer writer = new OutputStreamWriter( os, StandardCharsets.ISO_8859_1 );
+        writer.write( "# Generated by " + ServiceIndexGenerator.class.getName() + ", do not edit\n" );
+        for (Map.Entry<String, String> entry : index.entrySet()) {
+            writer.write( escape( entry.getKey() ) + " = " + entry.getValue() + "\n" );
+        }
+        writer.flush();
+    }
+
+    private static String escape( String key ) {
+        return key.replace( ":", "\\:" ).replace( "=", "\\=" ).replace( " ", "\\ " );
+    }
+}
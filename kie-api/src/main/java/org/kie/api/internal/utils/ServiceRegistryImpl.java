@@ -26,26 +26,65 @@ public class ServiceRegistryImpl
         implements
         ServiceRegistry {
 
-    private Map<String, Object> registry;
+    private volatile Snapshot registry;
 
     static class LazyHolder {
         static final ServiceRegistryImpl INSTANCE = new ServiceRegistryImpl();
     }
 
     public ServiceRegistryImpl() {
-        registry = ServiceDiscoveryImpl.getInstance().getServices();
+        registry = new Snapshot( ServiceDiscoveryImpl.getInstance().getServices() );
     }
 
+    /**
+     * Resets the discovered services. The services are discovered again by the first lookup following the reset,
+     * so that services can still be added to the ServiceDiscoveryImpl before calling {@link #reload()}.
+     */
     public synchronized void reset() {
         ServiceDiscoveryImpl.getInstance().reset();
+        registry = new Snapshot( null );
     }
 
     public synchronized void reload() {
-        registry = ServiceDiscoveryImpl.getInstance().getServices();
+        registry = new Snapshot( ServiceDiscoveryImpl.getInstance().getServices() );
     }
 
-    public synchronized <T> T get(Class<T> cls) {
-        Object service = this.registry.get( cls.getName() );
-        return cls.isInstance( service ) ? (T) service : null;
+    public <T> T get(Class<T> cls) {
+        return (T) registry.get( cls );
+    }
+
+    /**
+     * Immutable view of the services discovered at a given time. Lookups are cached per requested class,
+     * so after the first one they neither lock nor go through the services map. A reset or a reload replaces
+     * the whole snapshot, and then its cache, with a new one.
+     */
+    private static class Snapshot extends ClassValue<Object> {
+
+        /* null until the services are discovered again after a reset */
+        private volatile Map<String, Object> services;
+
+        private Snapshot( Map<String, Object> services ) {
+            this.services = services;
+        }
+
+        @Override
+        protected Object computeValue( Class<?> cls ) {
+            Object service = getServices().get( cls.getName() );
+            return cls.isInstance( service ) ? service : null;
+        }
+
+        private Map<String, Object> getServices() {
+            Map<String, Object> discovered = services;
+            if ( discovered == null ) {
+                synchronized ( this ) {
+                    discovered = services;
+                    if ( discovered == null ) {
+                        discovered = ServiceDiscoveryImpl.getInstance().getServices();
+                        services = discovered;
+                    }
+                }
+            }
+            return discovered;
+        }
     }
 }
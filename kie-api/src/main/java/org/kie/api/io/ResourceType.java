@@ -17,9 +17,10 @@
 package org.kie.api.io;
 
 import java.io.Serializable;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ResourceType
         implements
@@ -37,7 +38,13 @@ public class ResourceType
 
     private String defaultPath;
 
-    private static final Map<String, ResourceType> CACHE = Collections.synchronizedMap(new HashMap<String, ResourceType>());
+    private static final Map<String, ResourceType> CACHE = new ConcurrentHashMap<String, ResourceType>();
+
+    /** Registered resource types indexed by each of their extensions */
+    private static final Map<String, ResourceType> EXTENSIONS = new ConcurrentHashMap<String, ResourceType>();
+
+    /** Snapshot of the registered extensions, longest first, matched against resource names without allocating */
+    private static volatile String[] sortedExtensions = new String[0];
 
     public ResourceType(String name,
                         String description,
@@ -51,18 +58,31 @@ public class ResourceType
         this.otherExtensions = otherExtensions;
     }
 
-    public static ResourceType addResourceTypeToRegistry(final String resourceType,
-                                                         final String description,
-                                                         final String defaultPath,
-                                                         final String defaultExtension,
-                                                         final String... otherExtensions) {
+    public static synchronized ResourceType addResourceTypeToRegistry(final String resourceType,
+                                                                      final String description,
+                                                                      final String defaultPath,
+                                                                      final String defaultExtension,
+                                                                      final String... otherExtensions) {
 
         ResourceType resource = new ResourceType( resourceType,
                                                   description,
                                                   defaultPath,
                                                   defaultExtension,
                                                   otherExtensions );
-        CACHE.put( resourceType, resource );
+        ResourceType previous = CACHE.put( resourceType, resource );
+        if ( previous != null ) {
+            EXTENSIONS.remove( previous.defaultExtension, previous );
+            for ( String extension : previous.otherExtensions ) {
+                EXTENSIONS.remove( extension, previous );
+            }
+        }
+        EXTENSIONS.put( defaultExtension, resource );
+        for ( String extension : otherExtensions ) {
+            EXTENSIONS.put( extension, resource );
+        }
+        String[] extensions = EXTENSIONS.keySet().toArray( new String[EXTENSIONS.size()] );
+        Arrays.sort( extensions, Comparator.comparingInt( String::length ).reversed() );
+        sortedExtensions = extensions;
         return resource;
     }
 
@@ -238,10 +258,24 @@ public class ResourceType
         return resource;
     }
 
+    /**
+     * Returns the registered ResourceType having the longest extension matching the end of the given resource name,
+     * or null if there isn't any.
+     */
     public static ResourceType determineResourceType(final String resourceName) {
-        for (ResourceType type : CACHE.values()) {
-            if (type.matchesExtension(resourceName)) {
-                return type;
+        if (resourceName == null) {
+            return null;
+        }
+        // the extension must follow a dot in the file name, not in the name of a folder
+        int fileNameStart = Math.max(resourceName.lastIndexOf('/'), resourceName.lastIndexOf('\\')) + 1;
+        for (String extension : sortedExtensions) {
+            int dotPos = resourceName.length() - extension.length() - 1;
+            if (dotPos >= fileNameStart && resourceName.charAt(dotPos) == '.' &&
+                    resourceName.regionMatches(dotPos + 1, extension, 0, extension.length())) {
+                ResourceType type = EXTENSIONS.get(extension);
+                if (type != null) {
+                    return type;
+                }
             }
         }
         return null;
@@ -250,11 +284,11 @@ public class ResourceType
     public boolean matchesExtension(String resourceName) {
         if (resourceName != null) {
 
-            if (resourceName.endsWith("." + defaultExtension)) {
+            if (endsWithExtension(resourceName, defaultExtension)) {
                 return true;
             }
             for (String extension : otherExtensions) {
-                if (resourceName.endsWith("." + extension)) {
+                if (endsWithExtension(resourceName, extension)) {
                     return true;
                 }
             }
@@ -262,6 +296,11 @@ public class ResourceType
         return false;
     }
 
+    private static boolean endsWithExtension(String resourceName, String extension) {
+        int dotPos = resourceName.length() - extension.length() - 1;
+        return dotPos >= 0 && resourceName.charAt(dotPos) == '.' && resourceName.endsWith(extension);
+    }
+
     public String getDefaultPath() {
         return defaultPath;
     }
@@ -36,4 +36,34 @@ public interface KieContainerMonitorMXBean {
      * @return
      */
     String getResolvedReleaseIdStr();
+
+    /**
+     * The mode used by the last update of the KieContainer to a different version, or null if it has never been updated.
+     * @see org.kie.api.runtime.KieContainerUpdateMode
+     */
+    String getLastUpdateMode();
+
+    /**
+     * The time in milliseconds spent by the last update of the KieContainer, including the build of the new version,
+     * or -1 if it has never been updated.
+     */
+    long getLastUpdateTime();
+
+    /**
+     * The time in milliseconds during which the last update of the KieContainer paused the KieSessions using it,
+     * or -1 if it has never been updated.
+     */
+    long getLastUpdatePauseTime();
+
+    /**
+     * Whether the KieBases of the KieContainer have been loaded from their on-disk snapshot (HIT),
+     * compiled because no valid snapshot was found (MISS), or compiled because snapshots are disabled (DISABLED).
+     */
+    String getKieBaseSnapshotStatus();
+
+    /**
+     * The time in milliseconds spent to load the KieBases of the KieContainer from their on-disk snapshot,
+     * or -1 if they haven't been loaded from a snapshot.
+     */
+    long getKieBaseSnapshotLoadTime();
 }
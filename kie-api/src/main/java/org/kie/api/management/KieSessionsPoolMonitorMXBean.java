@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.api.management;
+
+/**
+ * Statistics of a pool of KieSessions
+ * @see org.kie.api.runtime.KieSessionsPool
+ * @see org.kie.api.runtime.KieContainerSessionsPool
+ */
+public interface KieSessionsPoolMonitorMXBean {
+
+    /**
+     * The total number of sessions currently held by the pool, both in use and available
+     */
+    int getPoolSize();
+
+    /**
+     * The number of sessions currently available for reuse in the pool
+     */
+    int getAvailableSessions();
+
+    /**
+     * The number of requests served by reusing a session of the pool
+     */
+    long getHits();
+
+    /**
+     * The number of requests that required the creation of a new session, because none was available
+     */
+    long getMisses();
+
+    /**
+     * The number of sessions reset and returned to the pool
+     */
+    long getResets();
+
+    /**
+     * The total time in milliseconds spent resetting the sessions returned to the pool
+     */
+    long getTotalResetTime();
+
+    /**
+     * The average time in milliseconds spent resetting a session returned to the pool
+     */
+    double getAverageResetTime();
+
+    /**
+     * Resets all the statistics
+     */
+    void reset();
+}
@@ -25,4 +25,21 @@ public interface Environment {
 
     void setDelegate(Environment delegate);
 
+    /**
+     * Returns the slot assigned to the given identifier,
+     * or -1 if this Environment doesn't use slots or the identifier isn't known in advance.
+     * Reading an entry through its slot with {@link #get(int)} avoids the lookup by name.
+     */
+    default int getSlot(String identifier) {
+        return -1;
+    }
+
+    /**
+     * Returns the value of the entry assigned to the given slot
+     * @throws UnsupportedOperationException if this Environment doesn't use slots
+     * @see #getSlot(String)
+     */
+    default Object get(int slot) {
+        throw new UnsupportedOperationException( "Slots are not supported by " + getClass().getName() );
+    }
 }
@@ -27,4 +27,22 @@ public interface Globals {
     void setDelegate(Globals delegate);
 
     Collection<String> getGlobalKeys();
+
+    /**
+     * Returns the slot assigned at build time to the global with the given identifier,
+     * or -1 if this Globals doesn't use slots or the global hasn't been declared.
+     * Reading a global through its slot with {@link #get(int)} avoids the lookup by name.
+     */
+    default int getSlot(String identifier) {
+        return -1;
+    }
+
+    /**
+     * Returns the value of the global assigned to the given slot
+     * @throws UnsupportedOperationException if this Globals doesn't use slots
+     * @see #getSlot(String)
+     */
+    default Object get(int slot) {
+        throw new UnsupportedOperationException( "Slots are not supported by " + getClass().getName() );
+    }
 }
@@ -17,9 +17,12 @@
 package org.kie.api.runtime;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.kie.api.KieBase;
 import org.kie.api.KieBaseConfiguration;
+import org.kie.api.KieBaseWarmUpReport;
 import org.kie.api.builder.ReleaseId;
 import org.kie.api.builder.Results;
 import org.kie.api.builder.model.KieBaseModel;
@@ -61,6 +64,14 @@ public interface KieContainer {
      */
     Results updateToVersion(ReleaseId version);
 
+    /**
+     * Updates this KieContainer to a KieModule with the given fixed ReleaseId using the given update mode.
+     * With {@link KieContainerUpdateMode#INCREMENTAL} this is the same as {@link #updateToVersion(ReleaseId)}, while
+     * the other modes build the new version in background and then atomically swap the KieBases of this KieContainer,
+     * so that the live KieSessions aren't paused while the new version is compiled.
+     */
+    Results updateToVersion(ReleaseId version, KieContainerUpdateMode mode);
+
     /**
      * Returns the names of all the KieBases available in this KieContainer
      */
@@ -71,6 +82,21 @@ public interface KieContainer {
      */
     Collection<String> getKieSessionNamesInKieBase(String kBaseName);
 
+    /**
+     * Warms up all the KieBases of this KieContainer, building them if necessary.
+     * KieBases whose {@link KieBaseModel#isWarmUp()} flag is set are warmed up automatically before the
+     * KieContainer is made available, so this method is meant for the KieBases that aren't.
+     * @return the warm up reports mapped by KieBase name
+     * @see KieBase#warmUp()
+     */
+    default Map<String, KieBaseWarmUpReport> warmUp() {
+        Map<String, KieBaseWarmUpReport> reports = new LinkedHashMap<>();
+        for (String kBaseName : getKieBaseNames()) {
+            reports.put( kBaseName, getKieBase( kBaseName ).warmUp() );
+        }
+        return reports;
+    }
+
     /**
      * Returns the default KieBase in this KieContainer.
      * The returned KieBase will be managed by this KieContainer and then it will be updated
@@ -209,6 +235,13 @@ public interface KieContainer {
      */
     StatelessKieSession newStatelessKieSession(String kSessionName, KieSessionConfiguration conf);
 
+    /**
+     * Creates a pool of the KieSessions defined in this KieContainer, initially containing the given number of
+     * sessions for each KieSession requested from it. The sessions obtained from the pool are reset and reused
+     * when disposed, instead of being discarded.
+     */
+    KieContainerSessionsPool newKieSessionsPool(int initialSize);
+
     /**
      * Returns the ClassLoader used by this KieContainer
      */
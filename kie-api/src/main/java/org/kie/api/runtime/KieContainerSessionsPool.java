@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.api.runtime;
+
+/**
+ * A pool of the KieSessions defined in a KieContainer, either the default one or the ones named in the
+ * {@link org.kie.api.builder.model.KieSessionModel}s of its KieModule.
+ * <p>
+ * Calling {@link KieSession#dispose()} on a session obtained from this pool doesn't discard it, but resets it to
+ * a clean state, keeping its internal memories allocated, and returns it to the pool so that it can be reused
+ * by a following request. The pool grows when all its sessions are in use.
+ * </p>
+ */
+public interface KieContainerSessionsPool {
+
+    /**
+     * Returns the default KieSession of the KieContainer, reusing one from the pool when available
+     * @throws RuntimeException if the KieContainer doesn't have any default KieSession
+     */
+    KieSession newKieSession();
+
+    /**
+     * Returns the KieSession with the given name, reusing one from the pool when available
+     * @throws RuntimeException if the KieContainer doesn't have any KieSession with the given name
+     */
+    KieSession newKieSession( String kSessionName );
+
+    /**
+     * Returns the KieSession with the given name and configuration, reusing one from the pool when available
+     * @throws RuntimeException if the KieContainer doesn't have any KieSession with the given name
+     */
+    KieSession newKieSession( String kSessionName, KieSessionConfiguration conf );
+
+    /**
+     * Returns the default StatelessKieSession of the KieContainer, backed by the sessions of this pool
+     * @throws RuntimeException if the KieContainer doesn't have any default StatelessKieSession
+     */
+    StatelessKieSession newStatelessKieSession();
+
+    /**
+     * Returns the StatelessKieSession with the given name, backed by the sessions of this pool
+     * @throws RuntimeException if the KieContainer doesn't have any StatelessKieSession with the given name
+     */
+    StatelessKieSession newStatelessKieSession( String kSessionName );
+
+    /**
+     * Disposes all the sessions in this pool, including the ones currently in use
+     */
+    void shutdown();
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.api.runtime;
+
+/**
+ * An Enum for the ways a KieContainer can be updated to a new version of its KieModule.
+ *
+ * drools.containerUpdateMode = &lt;incremental|swap_keep_sessions|swap_migrate_sessions&gt;
+ *
+ * DEFAULT = incremental
+ */
+public enum KieContainerUpdateMode {
+
+    /**
+     * The differences between the old and the new version are applied to the existing KieBases
+     * while holding their lock, so the live KieSessions are paused until the update completes.
+     */
+    INCREMENTAL,
+
+    /**
+     * The new version is fully built and warmed up in background, then the KieBases of the KieContainer
+     * are atomically swapped with the new ones. The KieSessions created afterwards use the new version,
+     * while the existing ones keep using the old version until they are disposed.
+     */
+    SWAP_KEEP_SESSIONS,
+
+    /**
+     * As {@link #SWAP_KEEP_SESSIONS}, but the existing KieSessions are then migrated to the new KieBases
+     * one at a time, so that each of them is paused only while its own migration is in progress.
+     */
+    SWAP_MIGRATE_SESSIONS;
+
+    /**
+     * The property name for the update mode used by default, e.g. by the KieScanner
+     */
+    public static final String PROPERTY_NAME = "drools.containerUpdateMode";
+
+    /**
+     * Returns the update mode set through the {@link #PROPERTY_NAME} system property, or {@link #INCREMENTAL} if not set
+     */
+    public static KieContainerUpdateMode getDefault() {
+        String option = System.getProperty( PROPERTY_NAME );
+        return option != null ? determineUpdateMode( option ) : INCREMENTAL;
+    }
+
+    public static KieContainerUpdateMode determineUpdateMode(String option) {
+        for ( KieContainerUpdateMode mode : values() ) {
+            if ( mode.name().equalsIgnoreCase( option ) ) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException( "Illegal enum value '" + option + "' for KieContainerUpdateMode" );
+    }
+}
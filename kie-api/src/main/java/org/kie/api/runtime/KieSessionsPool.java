@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.api.runtime;
+
+/**
+ * A pool of KieSessions created from the same KieBase.
+ * <p>
+ * Calling {@link KieSession#dispose()} on a session obtained from this pool doesn't discard it, but resets it to
+ * a clean state, keeping its internal memories allocated, and returns it to the pool so that it can be reused
+ * by a following request. The pool grows when all its sessions are in use.
+ * </p>
+ */
+public interface KieSessionsPool {
+
+    /**
+     * Returns a KieSession with the default configuration, reusing one from the pool when available
+     */
+    KieSession newKieSession();
+
+    /**
+     * Returns a KieSession with the given configuration, reusing one from the pool when available
+     */
+    KieSession newKieSession( KieSessionConfiguration conf );
+
+    /**
+     * Disposes all the sessions in this pool, including the ones currently in use
+     */
+    void shutdown();
+}
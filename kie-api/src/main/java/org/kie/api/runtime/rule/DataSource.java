@@ -16,6 +16,8 @@
 
 package org.kie.api.runtime.rule;
 
+import java.util.Collection;
+
 /**
  * A DataSource is a source of the data processed by a given {@link RuleUnit}.
  */
@@ -42,6 +44,31 @@ public interface DataSource<T> extends Iterable<T> {
      */
     void update(FactHandle handle, T object, String... modifiedProperties);
 
+    /**
+     * Updates all the facts for which the given FactHandles were assigned with the new facts
+     * at the same positions, also specifying the set of properties that have been modified.
+     * Implementations may compute the property reactive masks once for the whole batch
+     * and propagate the changes together.
+     *
+     * @param handles the FactHandles for the facts to be updated.
+     * @param objects the new values for the facts being updated.
+     * @param modifiedProperties the list of the names of the properties modified in all the objects.
+     *                           If empty all the properties are considered modified.
+     * @throws IllegalArgumentException if handles and objects have different lengths
+     */
+    default void updateAll(FactHandle[] handles, T[] objects, String... modifiedProperties) {
+        if (handles.length != objects.length) {
+            throw new IllegalArgumentException( "Cannot update " + objects.length + " objects with " + handles.length + " handles" );
+        }
+        for (int i = 0; i < handles.length; i++) {
+            if (modifiedProperties.length == 0) {
+                update( handles[i], objects[i] );
+            } else {
+                update( handles[i], objects[i], modifiedProperties );
+            }
+        }
+    }
+
     /**
      * Deletes the fact for which the given FactHandle was assigned
      *
@@ -49,6 +76,18 @@ public interface DataSource<T> extends Iterable<T> {
      */
     void delete(FactHandle handle);
 
+    /**
+     * Deletes all the facts for which the given FactHandles were assigned.
+     * Implementations may propagate the deletions together.
+     *
+     * @param handles the handles whose facts are to be retracted.
+     */
+    default void deleteAll(Collection<? extends FactHandle> handles) {
+        for (FactHandle handle : handles) {
+            delete( handle );
+        }
+    }
+
     /**
      * Deletes the given object from this DataSource
      *
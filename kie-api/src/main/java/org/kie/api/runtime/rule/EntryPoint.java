@@ -61,6 +61,38 @@ public interface EntryPoint {
      */
     FactHandle insert(Object object);
 
+    /**
+     * Inserts all the given facts into this entry point.
+     * Implementations may group the facts by type and propagate them in a single pass,
+     * which is much cheaper than inserting them one by one.
+     *
+     * @param objects
+     *        the facts to be inserted
+     *
+     * @return the fact handles created for the given facts, in the same order as the facts
+     */
+    default FactHandle[] insertAll(Collection<?> objects) {
+        return insertAll( objects.toArray() );
+    }
+
+    /**
+     * Inserts all the given facts into this entry point.
+     * Implementations may group the facts by type and propagate them in a single pass,
+     * which is much cheaper than inserting them one by one.
+     *
+     * @param objects
+     *        the facts to be inserted
+     *
+     * @return the fact handles created for the given facts, in the same order as the facts
+     */
+    default FactHandle[] insertAll(Object[] objects) {
+        FactHandle[] handles = new FactHandle[objects.length];
+        for (int i = 0; i < objects.length; i++) {
+            handles[i] = insert( objects[i] );
+        }
+        return handles;
+    }
+
     /**
      * Retracts the fact for which the given FactHandle was assigned.
      *
@@ -87,6 +119,19 @@ public interface EntryPoint {
      */
     void delete(FactHandle handle, FactHandle.State fhState);
 
+    /**
+     * Retracts all the facts for which the given FactHandles were assigned
+     * regardless if they have been explicitly or logically inserted.
+     * Implementations may propagate the deletions together.
+     *
+     * @param handles the handles whose facts are to be retracted.
+     */
+    default void deleteAll(Collection<? extends FactHandle> handles) {
+        for (FactHandle handle : handles) {
+            delete( handle );
+        }
+    }
+
     /**
      * Updates the fact for which the given FactHandle was assigned with the new
      * fact set as the second parameter in this method.
@@ -110,6 +155,33 @@ public interface EntryPoint {
                 Object object,
                 String... modifiedProperties);
 
+    /**
+     * Updates all the facts for which the given FactHandles were assigned with the new facts
+     * at the same positions, also specifying the set of properties that have been modified.
+     * Implementations may compute the property reactive masks once for the whole batch
+     * and propagate the changes together.
+     *
+     * @param handles the FactHandles for the facts to be updated.
+     * @param objects the new values for the facts being updated.
+     * @param modifiedProperties the list of the names of the properties modified in all the objects.
+     *                           If empty all the properties are considered modified.
+     * @throws IllegalArgumentException if handles and objects have different lengths
+     */
+    default void updateAll(FactHandle[] handles,
+                           Object[] objects,
+                           String... modifiedProperties) {
+        if (handles.length != objects.length) {
+            throw new IllegalArgumentException( "Cannot update " + objects.length + " objects with " + handles.length + " handles" );
+        }
+        for (int i = 0; i < handles.length; i++) {
+            if (modifiedProperties.length == 0) {
+                update( handles[i], objects[i] );
+            } else {
+                update( handles[i], objects[i], modifiedProperties );
+            }
+        }
+    }
+
     /**
      * Returns the fact handle associated with the given object. It is important to note that this
      * method behaves in accordance with the configured assert behaviour for this {@link org.kie.api.KieBase}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.api.runtime.rule;
+
+import java.util.Iterator;
+
+/**
+ * <p>
+ * A forward only cursor over the results of a query, whose rows can be produced lazily while the cursor is moved.
+ * Columns are accessed by index: the index of an identifier should be resolved once with
+ * {@link #getColumnIndex(String)} and then used for all the rows, avoiding a lookup per cell. The typed accessors,
+ * like {@link #getLong(int)} and {@link #getDouble(int)}, allow implementations to read primitive values
+ * without boxing them. As for a JDBC ResultSet, they return 0, or false, for a null cell, which can be told apart
+ * through {@link #isNull(int)}.
+ * </p>
+ * <pre>
+ * try (QueryResultsCursor cursor = ksession.getQueryResultsCursor( "orders" )) {
+ *     int amount = cursor.getColumnIndex( "$amount" );
+ *     while ( cursor.next() ) {
+ *         total += cursor.getDouble( amount );
+ *     }
+ * }
+ * </pre>
+ * @see RuleRuntime#getQueryResultsCursor(String, Object...)
+ */
+public interface QueryResultsCursor extends AutoCloseable {
+
+    /**
+     * Returns the identifiers of the columns, in index order
+     */
+    String[] getIdentifiers();
+
+    /**
+     * Returns the index of the column with the given identifier
+     * @throws IllegalArgumentException if there isn't any column with the given identifier
+     */
+    default int getColumnIndex(String identifier) {
+        String[] identifiers = getIdentifiers();
+        for (int i = 0; i < identifiers.length; i++) {
+            if (identifiers[i].equals( identifier )) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException( "Unknown identifier " + identifier );
+    }
+
+    /**
+     * Moves the cursor to the next row
+     * @return false if there are no more rows
+     */
+    boolean next();
+
+    /**
+     * Returns the object bound to the column with the given index in the current row
+     */
+    Object get(int column);
+
+    /**
+     * Returns the FactHandle bound to the column with the given index in the current row
+     */
+    FactHandle getFactHandle(int column);
+
+    /**
+     * Returns true if the column with the given index is null in the current row
+     */
+    default boolean isNull(int column) {
+        return get( column ) == null;
+    }
+
+    /**
+     * Returns the value of the column with the given index in the current row as a long, or 0 if it is null
+     * @throws ClassCastException if the value is not a Number
+     */
+    default long getLong(int column) {
+        Number value = (Number) get( column );
+        return value != null ? value.longValue() : 0L;
+    }
+
+    /**
+     * Returns the value of the column with the given index in the current row as an int, or 0 if it is null
+     * @throws ClassCastException if the value is not a Number
+     */
+    default int getInt(int column) {
+        Number value = (Number) get( column );
+        return value != null ? value.intValue() : 0;
+    }
+
+    /**
+     * Returns the value of the column with the given index in the current row as a double, or 0 if it is null
+     * @throws ClassCastException if the value is not a Number
+     */
+    default double getDouble(int column) {
+        Number value = (Number) get( column );
+        return value != null ? value.doubleValue() : 0.0;
+    }
+
+    /**
+     * Returns the value of the column with the given index in the current row as a boolean, or false if it is null
+     * @throws ClassCastException if the value is not a Boolean
+     */
+    default boolean getBoolean(int column) {
+        Boolean value = (Boolean) get( column );
+        return value != null && value;
+    }
+
+    /**
+     * Releases the resources held by this cursor. The rows not read yet won't be produced.
+     */
+    @Override
+    void close();
+
+    /**
+     * Returns a cursor over already materialized QueryResults
+     */
+    static QueryResultsCursor of(QueryResults results) {
+        String[] identifiers = results.getIdentifiers();
+        Iterator<QueryResultsRow> iterator = results.iterator();
+        return new QueryResultsCursor() {
+            private QueryResultsRow row;
+
+            @Override
+            public String[] getIdentifiers() {
+                return identifiers;
+            }
+
+            @Override
+            public boolean next() {
+                row = iterator.hasNext() ? iterator.next() : null;
+                return row != null;
+            }
+
+            @Override
+            public Object get(int column) {
+                return currentRow().get( identifiers[column] );
+            }
+
+            @Override
+            public FactHandle getFactHandle(int column) {
+                return currentRow().getFactHandle( identifiers[column] );
+            }
+
+            @Override
+            public void close() {
+                row = null;
+            }
+
+            private QueryResultsRow currentRow() {
+                if (row == null) {
+                    throw new IllegalStateException( "The cursor is not positioned on a row" );
+                }
+                return row;
+            }
+        };
+    }
+}
@@ -75,6 +75,27 @@ public interface RuleRuntime
     QueryResults getQueryResults(String query,
                                  Object... arguments);
 
+    /**
+     * Opens a cursor over the results of the specified query and arguments.
+     * Differently from {@link #getQueryResults(String, Object...)} the rows can be produced lazily,
+     * while the cursor is moved, and their columns read by index and without boxing.
+     * The cursor must be closed when done.
+     *
+     * @param query
+     *            The name of the query.
+     *
+     * @param arguments
+     *            The arguments used for the query
+     *
+     * @return A cursor over the results of the specified query
+     *
+     * @throws RuntimeException If the query does not exist
+     */
+    default QueryResultsCursor getQueryResultsCursor(String query,
+                                                     Object... arguments) {
+        return QueryResultsCursor.of( getQueryResults( query, arguments ) );
+    }
+
     LiveQuery openLiveQuery(String query,
                             Object[] arguments,
                             ViewChangedEventListener listener);
@@ -36,6 +36,37 @@ public class KModuleXSDTest {
 
     @Test
     public void loadAndValidate() throws Exception {
+        Validator validator = newValidator();
+
+        Source source = new StreamSource(KModuleXSDTest.class.getResource( "kmod1.xml" ).openStream());
+        assertNotNull( source );
+
+        try {
+            validator.validate(source);
+        } catch (SAXException ex) {
+            fail( "XML should be valid: " + ex.getMessage() );
+        }
+    }
+
+    @Test
+    public void validateWarmUp() throws Exception {
+        Validator validator = newValidator();
+
+        try {
+            validator.validate( new StreamSource( KModuleXSDTest.class.getResource( "kmod-warmup.xml" ).openStream() ) );
+        } catch (SAXException ex) {
+            fail( "XML should be valid: " + ex.getMessage() );
+        }
+
+        try {
+            validator.validate( new StreamSource( KModuleXSDTest.class.getResource( "kmod-invalid-warmup.xml" ).openStream() ) );
+            fail( "warmUp should be a boolean" );
+        } catch (SAXException ex) {
+            // expected
+        }
+    }
+
+    private Validator newValidator() throws Exception {
         SchemaFactory factory = SchemaFactory.newInstance("http://www.w3.org/2001/XMLSchema");
 
         URL url = getClass().getClassLoader().getResource("org/kie/api/kmodule.xsd");
@@ -48,16 +79,7 @@ public class KModuleXSDTest {
         }
         assertNotNull( schema );
 
-        Validator validator = schema.newValidator();
-
-        Source source = new StreamSource(KModuleXSDTest.class.getResource( "kmod1.xml" ).openStream());
-        assertNotNull( source );
-
-        try {
-            validator.validate(source);
-        } catch (SAXException ex) {
-            fail( "XML should be valid: " + ex.getMessage() );
-        }
+        return schema.newValidator();
     }
 
 }
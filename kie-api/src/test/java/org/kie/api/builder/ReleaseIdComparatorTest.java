@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.api.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.kie.api.builder.ReleaseIdComparator.ComparableVersion;
+import org.kie.api.management.GAV;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ReleaseIdComparatorTest {
+
+    @Test
+    public void testCachedVersionIsReused() {
+        final ComparableVersion cached = ComparableVersion.cached("7.8.0.Final");
+        assertSame(cached, ComparableVersion.cached("7.8.0.Final"));
+        assertEquals(cached, ComparableVersion.parse("7.8.0.Final"));
+        assertEquals(0, cached.compareTo(ComparableVersion.parse("7.8.0.Final")));
+    }
+
+    @Test
+    public void testParsedVersionsAreNotShared() {
+        final ComparableVersion parsed = ComparableVersion.parse("1.0.0");
+        assertNotSame(parsed, ComparableVersion.parse("1.0.0"));
+
+        parsed.parseVersion("2.0.0");
+        assertEquals("2.0.0", parsed.toString());
+        assertEquals("1.0.0", ComparableVersion.parse("1.0.0").toString());
+        assertTrue(ComparableVersion.parse("1.0.0").compareTo(parsed) < 0);
+    }
+
+    @Test
+    public void testNumericVersions() {
+        assertEquivalent("1", "1.0", "1.0.0", "01.000");
+        assertOrdered("0.9", "1", "1.0.1", "1.1", "1.9", "1.10", "2");
+        // a shorter version with the same prefix is lower unless the remaining items are zeros
+        assertOrdered("1.2", "1.2.0.1");
+    }
+
+    @Test
+    public void testNumericFastPathBoundaries() {
+        // 18 digits are always parsed as a long, larger numbers only when they fit
+        assertOrdered("999999999999999999", "1000000000000000000", "9223372036854775807",
+                      "9223372036854775808", "99999999999999999999");
+        assertEquivalent("9223372036854775808", "09223372036854775808");
+        // versions with a number too large for a long are compared item by item
+        assertOrdered("1.9223372036854775807", "1.9223372036854775808", "2.0");
+        assertOrdered("1.0-SNAPSHOT", "1.0", "1.0.1");
+    }
+
+    @Test
+    public void testQualifierOrdering() {
+        assertOrdered("1-alpha", "1-beta", "1-milestone", "1-rc", "1-SNAPSHOT", "1", "1-sp", "1-custom");
+        assertEquivalent("1-alpha1", "1-a1");
+        assertEquivalent("1-beta2", "1-b2");
+        assertEquivalent("1-milestone3", "1-m3");
+        assertEquivalent("1-rc", "1-cr");
+        assertEquivalent("1", "1-ga", "1-final", "1.Final");
+        assertEquivalent("1-SNAPSHOT", "1-snapshot");
+        // unknown qualifiers are ordered lexically
+        assertOrdered("1-bar", "1-foo");
+    }
+
+    @Test
+    public void testSortingReleaseIds() {
+        final List<ReleaseId> releaseIds = new ArrayList<ReleaseId>();
+        for (final String version : Arrays.asList("1.10", "1.2-SNAPSHOT", "1.2", "1.9")) {
+            releaseIds.add(new GAV("org.kie", "test", version));
+        }
+        assertEquals("1.10", ReleaseIdComparator.getLatest(releaseIds).getVersion());
+        assertEquals("1.2-SNAPSHOT", ReleaseIdComparator.getEarliest(releaseIds).getVersion());
+    }
+
+    private static void assertOrdered(final String... ascending) {
+        for (int i = 0; i < ascending.length; i++) {
+            for (int j = 0; j < ascending.length; j++) {
+                final ComparableVersion left = ComparableVersion.parse(ascending[i]);
+                final ComparableVersion right = ComparableVersion.parse(ascending[j]);
+                assertEquals(ascending[i] + " vs " + ascending[j], Integer.signum(Integer.compare(i, j)), Integer.signum(left.compareTo(right)));
+                assertEquals(ascending[i] + " vs " + ascending[j], i == j, left.equals(right));
+            }
+        }
+    }
+
+    private static void assertEquivalent(final String... versions) {
+        final ComparableVersion first = ComparableVersion.parse(versions[0]);
+        for (final String version : versions) {
+            final ComparableVersion parsed = ComparableVersion.parse(version);
+            assertEquals(versions[0] + " vs " + version, 0, first.compareTo(parsed));
+            assertEquals(versions[0] + " vs " + version, 0, parsed.compareTo(first));
+            assertEquals(versions[0] + " vs " + version, first, parsed);
+            assertEquals(versions[0] + " vs " + version, first.hashCode(), parsed.hashCode());
+        }
+    }
+}
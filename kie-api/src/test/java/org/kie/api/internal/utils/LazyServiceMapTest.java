@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.api.internal.utils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.kie.api.io.ResourceType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LazyServiceMapTest {
+
+    private static final String KEY = "org.kie.api.internal.assembler.KieAssemblers";
+
+    @Test
+    public void testServiceAndChildrenAreCreatedOnFirstLookup() {
+        final ClassLoader classLoader = getClass().getClassLoader();
+        final LazyServiceMap.LazyService parent = new LazyServiceMap.LazyService(classLoader, MockAssemblersImpl.class.getName(), false);
+        parent.addChildren(Collections.singletonList(new LazyServiceMap.LazyService(classLoader, MockChildAssemblerService.class.getName(), false)));
+
+        final Map<String, Object> services = new HashMap<>();
+        services.put(KEY, parent);
+        final LazyServiceMap lazyServices = new LazyServiceMap(services);
+
+        final Object service = lazyServices.get(KEY);
+        assertTrue(service instanceof MockAssemblersImpl);
+        assertTrue(((MockAssemblersImpl) service).getAssemblers().get(ResourceType.DRL) instanceof MockChildAssemblerService);
+        assertSame(service, lazyServices.get(KEY));
+    }
+
+    @Test
+    public void testMissingOptionalServiceResolvesToNull() {
+        final Map<String, Object> services = new HashMap<>();
+        services.put(KEY, new LazyServiceMap.LazyService(getClass().getClassLoader(), "org.kie.DoesNotExist", true));
+        assertNull(new LazyServiceMap(services).get(KEY));
+    }
+
+    @Test
+    public void testUnavailableOptionalServiceIsNotContained() {
+        final Map<String, Object> services = new HashMap<>();
+        services.put(KEY, new LazyServiceMap.LazyService(getClass().getClassLoader(), "org.kie.DoesNotExist", true));
+        final LazyServiceMap lazyServices = new LazyServiceMap(services);
+        assertNull(lazyServices.get(KEY));
+        assertFalse(lazyServices.containsKey(KEY));
+    }
+
+    @Test
+    public void testUnresolvedUnavailableOptionalServiceIsNotContained() {
+        final Map<String, Object> services = new HashMap<>();
+        services.put(KEY, new LazyServiceMap.LazyService(getClass().getClassLoader(), "org.kie.DoesNotExist", true));
+        assertFalse(new LazyServiceMap(services).containsKey(KEY));
+    }
+
+    @Test
+    public void testMandatoryServiceIsContainedWithoutInstantiation() {
+        final Map<String, Object> services = new HashMap<>();
+        services.put(KEY, new LazyServiceMap.LazyService(getClass().getClassLoader(), "org.kie.DoesNotExist", false));
+        assertTrue(new LazyServiceMap(services).containsKey(KEY));
+    }
+
+    @Test
+    public void testConcurrentLookupsGetTheSameInstance() throws Exception {
+        final LazyServiceMap.LazyService service = new LazyServiceMap.LazyService(getClass().getClassLoader(), RendezvousService.class.getName(), false);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // both the lookups must be creating the service at the same time for the rendezvous to succeed
+            final Future<Object> first = executor.submit(service::get);
+            final Future<Object> second = executor.submit(service::get);
+            final Object instance = first.get(10, TimeUnit.SECONDS);
+            assertTrue(instance instanceof RendezvousService);
+            assertSame(instance, second.get(10, TimeUnit.SECONDS));
+            assertSame(instance, service.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testIteratingEntriesDoesNotInstantiateServices() {
+        final Map<String, Object> services = new HashMap<>();
+        // instantiating this service would fail, so it must not happen while iterating the keys
+        services.put(KEY, new LazyServiceMap.LazyService(getClass().getClassLoader(), "org.kie.DoesNotExist", false));
+        for (Map.Entry<String, Object> entry : new LazyServiceMap(services).entrySet()) {
+            assertEquals(KEY, entry.getKey());
+        }
+    }
+
+    public static class RendezvousService {
+
+        private static final CyclicBarrier BARRIER = new CyclicBarrier(2);
+
+        public RendezvousService() throws Exception {
+            BARRIER.await(5, TimeUnit.SECONDS);
+        }
+    }
+}
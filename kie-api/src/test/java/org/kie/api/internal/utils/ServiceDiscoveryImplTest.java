@@ -16,13 +16,23 @@
 
 package org.kie.api.internal.utils;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
 import java.util.Map;
+import java.util.Properties;
 
 import org.junit.Test;
 import org.kie.api.internal.assembler.KieAssemblerService;
 import org.kie.api.io.ResourceType;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class ServiceDiscoveryImplTest {
@@ -42,4 +52,103 @@ public class ServiceDiscoveryImplTest {
         assertNotNull(childServices.get(ResourceType.DRL));
         assertTrue(childServices.get(ResourceType.DRL) instanceof MockChildAssemblerService);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testIndexIsUsedWhenItsKieConfsAreUnchanged() throws Exception {
+        // an index without the child service, so that it is possible to tell if it has been used
+        final ClassLoader classLoader = classLoaderWithIndexes(index(kieConfSource()));
+        final Object service = new ServiceDiscoveryImpl(classLoader).getServices().get("org.kie.api.internal.assembler.KieAssemblers");
+        assertTrue(service instanceof MockAssemblersImpl);
+        assertTrue(((MockAssemblersImpl) service).getAssemblers().isEmpty());
+    }
+
+    @Test
+    public void testIndexOfChangedKieConfIsIgnored() throws Exception {
+        // the hash of a different content
+        final String source = String.format("%064d", 0) + kieConfSource().substring(64);
+        final ClassLoader classLoader = classLoaderWithIndexes(index(source));
+        assertIndexIgnored(classLoader);
+    }
+
+    @Test
+    public void testIndexOfMissingKieConfIsIgnored() throws Exception {
+        final File missing = new File(Files.createTempDirectory("kie-conf").toFile(), "kie.conf");
+        final String source = kieConfSource().substring(0, 65) + missing.toURI().toURL().toExternalForm();
+        final ClassLoader classLoader = classLoaderWithIndexes(index(source));
+        assertIndexIgnored(classLoader);
+    }
+
+    @Test
+    public void testOverlappingIndexesAreMerged() throws Exception {
+        final ClassLoader classLoader = classLoaderWithIndexes(index(kieConfSource()),
+                                                               index(kieConfSource(), "org.kie.StaticLookup", StaticLookupService.class.getName()));
+        final Map<String, Object> services = new ServiceDiscoveryImpl(classLoader).getServices();
+        assertTrue(((MockAssemblersImpl) services.get("org.kie.api.internal.assembler.KieAssemblers")).getAssemblers().isEmpty());
+        // the kie.conf recorded by both indexes is taken from the first one
+        assertFalse(services.containsKey("org.kie.StaticLookup"));
+    }
+
+    private static void assertIndexIgnored(final ClassLoader classLoader) {
+        final Object service = new ServiceDiscoveryImpl(classLoader).getServices().get("org.kie.api.internal.assembler.KieAssemblers");
+        assertTrue(service instanceof MockAssemblersImpl);
+        assertEquals(1, ((MockAssemblersImpl) service).getAssemblers().size());
+    }
+
+    @Test
+    public void testParallelLoadingInitializesServicesOnDiscoveringThread() throws Exception {
+        final ClassLoader classLoader = classLoaderWithIndexes(index(kieConfSource(), "org.kie.StaticLookup", StaticLookupService.class.getName()));
+        final ServiceDiscoveryImpl serviceDiscovery = new ServiceDiscoveryImpl(classLoader);
+        serviceDiscovery.setParallelLoading(true);
+        final Map<String, Object> services = serviceDiscovery.getServices();
+        assertTrue(serviceDiscovery.getReport().isParallel());
+        assertTrue(services.get("org.kie.StaticLookup") instanceof StaticLookupService);
+        assertSame(Thread.currentThread(), StaticLookupService.INITIALIZING_THREAD);
+        assertNotNull(StaticLookupService.SERVICES);
+        assertTrue(services.get("org.kie.api.internal.assembler.KieAssemblers") instanceof MockAssemblersImpl);
+    }
+
+    @Test
+    public void testParallelScanWiresChildServices() throws Exception {
+        final ServiceDiscoveryImpl serviceDiscovery = new ServiceDiscoveryImpl(getClass().getClassLoader());
+        serviceDiscovery.setParallelLoading(true);
+        final Object service = serviceDiscovery.getServices().get("org.kie.api.internal.assembler.KieAssemblers");
+        assertTrue(serviceDiscovery.getReport().isParallel());
+        assertEquals(1, ((MockAssemblersImpl) service).getAssemblers().size());
+    }
+
+    private String kieConfSource() throws Exception {
+        final URL conf = getClass().getClassLoader().getResource(ServiceDiscoveryImpl.CONF_PATH);
+        return ServiceDiscoveryImpl.hash(conf) + " " + conf.toExternalForm();
+    }
+
+    @Test
+    public void testMissingOptionalServiceIsAbsentWithLazyInstantiation() throws Exception {
+        final ClassLoader classLoader = classLoaderWithIndexes(index(kieConfSource(), "?org.kie.Missing", "org.kie.DoesNotExist"));
+        final ServiceDiscoveryImpl serviceDiscovery = new ServiceDiscoveryImpl(classLoader);
+        serviceDiscovery.setLazyInstantiation(true);
+        final Map<String, Object> services = serviceDiscovery.getServices();
+        assertFalse(services.containsKey("org.kie.Missing"));
+        assertTrue(services.containsKey("org.kie.api.internal.assembler.KieAssemblers"));
+    }
+
+    private static URL index(final String source, final String... entries) throws Exception {
+        final File folder = Files.createTempDirectory("kie-index").toFile();
+        final File indexFile = new File(folder, ServiceDiscoveryImpl.INDEX_PATH);
+        indexFile.getParentFile().mkdirs();
+
+        final Properties index = new Properties();
+        index.setProperty(ServiceDiscoveryImpl.INDEX_SOURCE_KEY + 0, source);
+        index.setProperty("0/org.kie.api.internal.assembler.KieAssemblers", MockAssemblersImpl.class.getName());
+        for (int i = 0; i < entries.length; i += 2) {
+            index.setProperty("0/" + entries[i], entries[i + 1]);
+        }
+        try (OutputStream os = new FileOutputStream(indexFile)) {
+            index.store(os, null);
+        }
+        return folder.toURI().toURL();
+    }
+
+    private ClassLoader classLoaderWithIndexes(final URL... indexFolders) {
+        return new URLClassLoader(indexFolders, getClass().getClassLoader());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.api.internal.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ServiceIndexGeneratorTest {
+
+    private static final String ASSEMBLERS = "org.kie.api.internal.assembler.KieAssemblers";
+
+    @Test
+    public void testIndexContainsServiceAndChildService() throws Exception {
+        final ServiceIndexGenerator generator = new ServiceIndexGenerator(getClass().getClassLoader());
+        final Map<String, String> index = generator.buildIndex();
+        assertEquals(2, index.size());
+        assertEquals("org.kie.api.internal.utils.MockAssemblersImpl,+org.kie.api.internal.utils.MockChildAssemblerService",
+                     index.get("0/" + ASSEMBLERS));
+    }
+
+    @Test
+    public void testIndexRecordsContentAndUrlOfKieConf() throws Exception {
+        final URL conf = getClass().getClassLoader().getResource(ServiceDiscoveryImpl.CONF_PATH);
+        final Map<String, String> index = new ServiceIndexGenerator(getClass().getClassLoader()).buildIndex();
+        assertEquals(ServiceDiscoveryImpl.hash(conf) + " " + conf.toExternalForm(),
+                     index.get(ServiceDiscoveryImpl.INDEX_SOURCE_KEY + 0));
+        assertEquals(64, ServiceDiscoveryImpl.hash(conf).length());
+    }
+
+    @Test
+    public void testGeneratedIndexIsReadableAsKieConf() throws Exception {
+        final File outputFolder = Files.createTempDirectory("kie-index").toFile();
+        final ServiceIndexGenerator generator = new ServiceIndexGenerator(getClass().getClassLoader());
+        final File indexFile = generator.generate(outputFolder);
+        assertTrue(indexFile.getPath().endsWith(ServiceDiscoveryImpl.INDEX_PATH.replace('/', File.separatorChar)));
+
+        final Properties props = new Properties();
+        try (InputStream is = new FileInputStream(indexFile)) {
+            props.load(is);
+        }
+        assertEquals(generator.buildIndex(), props);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.api.internal.utils;
+
+import org.junit.After;
+import org.junit.Test;
+import org.kie.api.internal.assembler.KieAssemblers;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ServiceRegistryImplTest {
+
+    @After
+    public void cleanUp() {
+        ServiceDiscoveryImpl.getInstance().reset();
+    }
+
+    @Test
+    public void testLookupAfterReload() {
+        final ServiceRegistryImpl registry = new ServiceRegistryImpl();
+        assertNull(registry.get(Runnable.class));
+
+        final Runnable service = () -> { };
+        registry.reset();
+        ServiceDiscoveryImpl.getInstance().addService(Runnable.class, service);
+        registry.reload();
+        assertSame(service, registry.get(Runnable.class));
+        assertTrue(registry.get(KieAssemblers.class) instanceof MockAssemblersImpl);
+    }
+
+    @Test
+    public void testLookupAfterReset() {
+        final ServiceRegistryImpl registry = new ServiceRegistryImpl();
+        final KieAssemblers assemblers = registry.get(KieAssemblers.class);
+        assertNotNull(assemblers);
+        assertSame(assemblers, registry.get(KieAssemblers.class));
+
+        registry.reset();
+        final KieAssemblers rediscovered = registry.get(KieAssemblers.class);
+        assertTrue(rediscovered instanceof MockAssemblersImpl);
+        assertNotSame(assemblers, rediscovered);
+        assertSame(rediscovered, registry.get(KieAssemblers.class));
+    }
+}
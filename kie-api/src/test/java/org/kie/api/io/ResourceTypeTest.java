@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.api.io;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ResourceTypeTest {
+
+    @Test
+    public void testDetermineResourceType() {
+        assertSame(ResourceType.DRL, ResourceType.determineResourceType("rules.drl"));
+        assertSame(ResourceType.DRL, ResourceType.determineResourceType("org/kie/rules.drl"));
+        assertSame(ResourceType.BPMN2, ResourceType.determineResourceType("process.bpmn2"));
+        assertSame(ResourceType.BPMN2, ResourceType.determineResourceType("process.bpmn"));
+        assertSame(ResourceType.DSLR, ResourceType.determineResourceType("rules.dslr"));
+        assertNull(ResourceType.determineResourceType("rules.txt"));
+        assertNull(ResourceType.determineResourceType("drl"));
+        assertNull(ResourceType.determineResourceType(null));
+    }
+
+    @Test
+    public void testDotsInFolderNamesAreIgnored() {
+        assertSame(ResourceType.DRL, ResourceType.determineResourceType("kie-1.0.0/rules.drl"));
+        assertSame(ResourceType.DRL, ResourceType.determineResourceType("C:\\kie-1.0.0\\rules.drl"));
+        assertNull(ResourceType.determineResourceType("rules.drl/readme"));
+        assertNull(ResourceType.determineResourceType("folder.drl/readme.txt"));
+    }
+
+    @Test
+    public void testLongestExtensionWins() {
+        final ResourceType doubleDot = ResourceType.addResourceTypeToRegistry("TEST_DOUBLE_DOT",
+                                                                               "Double dot extension",
+                                                                               "src/main/resources",
+                                                                               "test.drl");
+        assertSame(doubleDot, ResourceType.determineResourceType("org/kie/rules.test.drl"));
+        assertSame(ResourceType.DRL, ResourceType.determineResourceType("org/kie/rules.drl"));
+        assertSame(ResourceType.DRL, ResourceType.determineResourceType("org/kie.test/rules.drl"));
+        assertEquals("TEST_DOUBLE_DOT", ResourceType.determineResourceType("a.test.drl").getName());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.api.runtime.rule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DataSourceTest {
+
+    private final RecordingDataSource dataSource = new RecordingDataSource();
+
+    @Test
+    public void testUpdateAllUpdatesInOrder() {
+        final FactHandle[] handles = {dataSource.insert("a"), dataSource.insert("b")};
+        dataSource.calls.clear();
+        dataSource.updateAll(handles, new String[]{"c", "d"}, "name");
+        assertEquals(Arrays.asList("update a c [name]", "update b d [name]"), dataSource.calls);
+    }
+
+    @Test
+    public void testUpdateAllWithoutModifiedProperties() {
+        final FactHandle[] handles = {dataSource.insert("a"), dataSource.insert("b")};
+        dataSource.calls.clear();
+        dataSource.updateAll(handles, new String[]{"c", "d"});
+        assertEquals(Arrays.asList("update a c []", "update b d []"), dataSource.calls);
+    }
+
+    @Test
+    public void testUpdateAllWithDifferentLengthsUpdatesNothing() {
+        final FactHandle[] handles = {dataSource.insert("a")};
+        dataSource.calls.clear();
+        try {
+            dataSource.updateAll(handles, new String[]{"c", "d"});
+            fail("Updating 2 objects with 1 handle should fail");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertTrue(dataSource.calls.isEmpty());
+    }
+
+    @Test
+    public void testDeleteAllDeletesInOrder() {
+        final FactHandle a = dataSource.insert("a");
+        final FactHandle b = dataSource.insert("b");
+        dataSource.calls.clear();
+        dataSource.deleteAll(Arrays.asList(b, a));
+        assertEquals(Arrays.asList("delete b", "delete a"), dataSource.calls);
+    }
+
+    private static class RecordingDataSource implements DataSource<String> {
+
+        private final List<String> calls = new ArrayList<String>();
+
+        @Override
+        public FactHandle insert(final String object) {
+            calls.add("insert " + object);
+            return () -> object;
+        }
+
+        @Override
+        public void update(final FactHandle handle, final String object, final String... modifiedProperties) {
+            calls.add("update " + handle.toExternalForm() + " " + object + " " + Arrays.toString(modifiedProperties));
+        }
+
+        @Override
+        public void delete(final FactHandle handle) {
+            calls.add("delete " + handle.toExternalForm());
+        }
+
+        @Override
+        public void delete(final Object object) {
+            calls.add("delete " + object);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new ArrayList<String>().iterator();
+        }
+    }
+}
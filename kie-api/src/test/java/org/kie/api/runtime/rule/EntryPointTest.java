@@ -0,0 +1,181 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.api.runtime.rule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+import org.kie.api.runtime.ObjectFilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EntryPointTest {
+
+    private final RecordingEntryPoint entryPoint = new RecordingEntryPoint();
+
+    @Test
+    public void testInsertAllInsertsInOrder() {
+        final FactHandle[] handles = entryPoint.insertAll(Arrays.asList("a", "b", "c"));
+        assertEquals(Arrays.asList("insert a", "insert b", "insert c"), entryPoint.calls);
+        assertEquals(3, handles.length);
+        for (int i = 0; i < handles.length; i++) {
+            assertEquals(entryPoint.handles.get(i), handles[i]);
+        }
+    }
+
+    @Test
+    public void testInsertAllOfNoFacts() {
+        assertEquals(0, entryPoint.insertAll(new Object[0]).length);
+        assertTrue(entryPoint.calls.isEmpty());
+    }
+
+    @Test
+    public void testUpdateAllUpdatesInOrder() {
+        final FactHandle[] handles = entryPoint.insertAll(new Object[]{"a", "b"});
+        entryPoint.calls.clear();
+        entryPoint.updateAll(handles, new Object[]{"c", "d"}, "name");
+        assertEquals(Arrays.asList("update c [name]", "update d [name]"), entryPoint.calls);
+    }
+
+    @Test
+    public void testUpdateAllWithoutModifiedProperties() {
+        final FactHandle[] handles = entryPoint.insertAll(new Object[]{"a", "b"});
+        entryPoint.calls.clear();
+        entryPoint.updateAll(handles, new Object[]{"c", "d"});
+        assertEquals(Arrays.asList("update c", "update d"), entryPoint.calls);
+    }
+
+    @Test
+    public void testUpdateAllWithDifferentLengthsUpdatesNothing() {
+        final FactHandle[] handles = entryPoint.insertAll(new Object[]{"a", "b"});
+        entryPoint.calls.clear();
+        try {
+            entryPoint.updateAll(handles, new Object[]{"c", "d", "e"}, "name");
+            fail("Updating 3 objects with 2 handles should fail");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertTrue(entryPoint.calls.isEmpty());
+    }
+
+    @Test
+    public void testDeleteAllDeletesInOrder() {
+        final FactHandle[] handles = entryPoint.insertAll(new Object[]{"a", "b"});
+        entryPoint.calls.clear();
+        entryPoint.deleteAll(Arrays.asList(handles[1], handles[0]));
+        assertEquals(Arrays.asList("delete b", "delete a"), entryPoint.calls);
+    }
+
+    private static class RecordingFactHandle implements FactHandle {
+
+        private final Object object;
+
+        private RecordingFactHandle(final Object object) {
+            this.object = object;
+        }
+
+        @Override
+        public String toExternalForm() {
+            return String.valueOf(object);
+        }
+    }
+
+    private static class RecordingEntryPoint implements EntryPoint {
+
+        private final List<String> calls = new ArrayList<String>();
+        private final List<FactHandle> handles = new ArrayList<FactHandle>();
+
+        @Override
+        public String getEntryPointId() {
+            return "recording";
+        }
+
+        @Override
+        public FactHandle insert(final Object object) {
+            calls.add("insert " + object);
+            final FactHandle handle = new RecordingFactHandle(object);
+            handles.add(handle);
+            return handle;
+        }
+
+        @Override
+        public void retract(final FactHandle handle) {
+            delete(handle);
+        }
+
+        @Override
+        public void delete(final FactHandle handle) {
+            calls.add("delete " + handle.toExternalForm());
+        }
+
+        @Override
+        public void delete(final FactHandle handle, final FactHandle.State fhState) {
+            delete(handle);
+        }
+
+        @Override
+        public void update(final FactHandle handle, final Object object) {
+            calls.add("update " + object);
+        }
+
+        @Override
+        public void update(final FactHandle handle, final Object object, final String... modifiedProperties) {
+            calls.add("update " + object + " " + Arrays.toString(modifiedProperties));
+        }
+
+        @Override
+        public FactHandle getFactHandle(final Object object) {
+            return null;
+        }
+
+        @Override
+        public Object getObject(final FactHandle factHandle) {
+            return ((RecordingFactHandle) factHandle).object;
+        }
+
+        @Override
+        public Collection<? extends Object> getObjects() {
+            return null;
+        }
+
+        @Override
+        public Collection<? extends Object> getObjects(final ObjectFilter filter) {
+            return null;
+        }
+
+        @Override
+        public <T extends FactHandle> Collection<T> getFactHandles() {
+            return null;
+        }
+
+        @Override
+        public <T extends FactHandle> Collection<T> getFactHandles(final ObjectFilter filter) {
+            return null;
+        }
+
+        @Override
+        public long getFactCount() {
+            return handles.size();
+        }
+    }
+}
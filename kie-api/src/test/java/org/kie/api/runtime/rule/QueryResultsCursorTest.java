@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.api.runtime.rule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QueryResultsCursorTest {
+
+    private final QueryResults results = new MapQueryResults(new String[]{"$name", "$age", "$score", "$active"},
+                                                             Arrays.asList(new Object[]{"Mario", 40, 1.5d, true},
+                                                                           new Object[]{null, null, null, null}));
+
+    @Test
+    public void testCursorOverQueryResults() {
+        try (QueryResultsCursor cursor = QueryResultsCursor.of(results)) {
+            assertArrayEquals(results.getIdentifiers(), cursor.getIdentifiers());
+            final int name = cursor.getColumnIndex("$name");
+            final int age = cursor.getColumnIndex("$age");
+            assertEquals(0, name);
+            assertEquals(1, age);
+
+            assertTrue(cursor.next());
+            assertEquals("Mario", cursor.get(name));
+            assertEquals(40, cursor.getInt(age));
+            assertEquals(40L, cursor.getLong(age));
+            assertEquals(40.0, cursor.getDouble(age), 0.0);
+            assertEquals(1.5, cursor.getDouble(cursor.getColumnIndex("$score")), 0.0);
+            assertTrue(cursor.getBoolean(cursor.getColumnIndex("$active")));
+            assertFalse(cursor.isNull(age));
+            assertNull(cursor.getFactHandle(name));
+
+            assertTrue(cursor.next());
+            assertFalse(cursor.next());
+        }
+    }
+
+    @Test
+    public void testNullCells() {
+        final QueryResultsCursor cursor = QueryResultsCursor.of(results);
+        cursor.next();
+        cursor.next();
+        for (int column = 0; column < 4; column++) {
+            assertTrue(cursor.isNull(column));
+        }
+        assertEquals(0, cursor.getInt(1));
+        assertEquals(0L, cursor.getLong(1));
+        assertEquals(0.0, cursor.getDouble(2), 0.0);
+        assertFalse(cursor.getBoolean(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownIdentifier() {
+        QueryResultsCursor.of(results).getColumnIndex("$unknown");
+    }
+
+    @Test
+    public void testCursorNotPositionedOnARow() {
+        final QueryResultsCursor cursor = QueryResultsCursor.of(results);
+        assertNotPositioned(cursor);
+        cursor.next();
+        cursor.next();
+        cursor.next();
+        assertNotPositioned(cursor);
+
+        final QueryResultsCursor closed = QueryResultsCursor.of(results);
+        closed.next();
+        closed.close();
+        assertNotPositioned(closed);
+    }
+
+    private static void assertNotPositioned(final QueryResultsCursor cursor) {
+        try {
+            cursor.get(0);
+            fail("The cursor is not positioned on a row");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private static class MapQueryResults implements QueryResults {
+
+        private final String[] identifiers;
+        private final List<QueryResultsRow> rows = new ArrayList<QueryResultsRow>();
+
+        private MapQueryResults(final String[] identifiers, final List<Object[]> values) {
+            this.identifiers = identifiers;
+            for (final Object[] row : values) {
+                final Map<String, Object> cells = new HashMap<String, Object>();
+                for (int i = 0; i < identifiers.length; i++) {
+                    cells.put(identifiers[i], row[i]);
+                }
+                rows.add(new QueryResultsRow() {
+                    @Override
+                    public Object get(final String identifier) {
+                        return cells.get(identifier);
+                    }
+
+                    @Override
+                    public FactHandle getFactHandle(final String identifier) {
+                        return null;
+                    }
+                });
+            }
+        }
+
+        @Override
+        public String[] getIdentifiers() {
+            return identifiers;
+        }
+
+        @Override
+        public Iterator<QueryResultsRow> iterator() {
+            return rows.iterator();
+        }
+
+        @Override
+        public int size() {
+            return rows.size();
+        }
+    }
+}
@@ -0,0 +1,427 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.builder;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.io.ResourceConfiguration;
+import org.kie.internal.builder.conf.CompilationCacheDirOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent cache of the compilation output of the resources of a KieFileSystem.
+ * <p>
+ * Each entry is keyed by a hash of the content of a resource, of its {@link ResourceConfiguration}, of the
+ * builder options affecting its compilation and of the context it is compiled in, i.e. the resources of its
+ * package and of the packages it imports and the dependencies of its KieModule, so that an unchanged resource can
+ * reuse its compiled package fragments and generated classes instead of being compiled again.
+ * <p>
+ * The cache also remembers the content keys of the resources of each KieModule at its last build, which don't
+ * depend on the context: comparing them with the current ones gives the {@link ResourceChangeSet}s to be passed
+ * to the incremental build, so that only the resources that actually changed are reported.
+ * <p>
+ * Entries are written atomically, so the same directory can be safely shared by concurrent builds.
+ * Unreadable entries, e.g. the ones written by an incompatible version, are discarded and counted as misses.
+ * @see CompilationCacheDirOption
+ */
+public class CompilationCache {
+
+    private static final Logger log = LoggerFactory.getLogger( CompilationCache.class );
+
+    private static final int FORMAT_VERSION = 1;
+
+    /* the length of the hex form of a SHA-256 hash */
+    private static final int KEY_LENGTH = 64;
+
+    private static final String ENTRIES_DIR = "entries";
+    private static final String MODULES_DIR = "modules";
+
+    private final Path dir;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CompilationCache( File dir ) {
+        this.dir = dir.toPath();
+    }
+
+    /**
+     * Computes the cache key of a resource, identifying its compilation output
+     * @param content the content of the resource
+     * @param configuration the configuration of the resource, can be null
+     * @param builderOptions the builder options affecting the compilation of the resource, e.g. the language level
+     * @param contextKey the key of the context the resource is compiled in
+     * @see #computeContextKey(Map, Map, Map)
+     */
+    public static String computeKey( byte[] content, ResourceConfiguration configuration,
+                                     Map<String, String> builderOptions, String contextKey ) {
+        MessageDigest digest = newDigest();
+        update( digest, computeContentKey( content, configuration, builderOptions ) );
+        update( digest, contextKey );
+        return toHex( digest.digest() );
+    }
+
+    /**
+     * Computes the content key of a resource, identifying the resource itself regardless of the context it is
+     * compiled in, to be used to detect the changed resources
+     * @see #getChanges(ReleaseId, Map)
+     */
+    public static String computeContentKey( byte[] content, ResourceConfiguration configuration,
+                                            Map<String, String> builderOptions ) {
+        MessageDigest digest = newDigest();
+        // every part is length prefixed, so that different inputs can't produce the same digested bytes
+        update( digest, content );
+        Map<String, String> properties = null;
+        if ( configuration != null ) {
+            Properties props = configuration.toProperties();
+            properties = new TreeMap<>();
+            for ( String name : props.stringPropertyNames() ) {
+                properties.put( name, props.getProperty( name ) );
+            }
+        }
+        update( digest, properties );
+        update( digest, builderOptions != null ? new TreeMap<>( builderOptions ) : null );
+        return toHex( digest.digest() );
+    }
+
+    /**
+     * Computes the key of the context the resources of a package are compiled in: a resource can use the types,
+     * functions and imports declared by the other resources of its package, the types and functions of the other
+     * packages it imports and the classes of the dependencies of its KieModule, so a change in any of them changes
+     * the key of all the resources of the package.
+     * @param packageResources the content of all the resources of the package, mapped by name
+     * @param importedPackages the keys computed by {@link #computePackageKey(Map)} of the packages of the same
+     *                         KieModule whose types or functions are imported by the package, directly or through
+     *                         other imported packages, mapped by package name
+     * @param dependencies the content hashes of the dependencies of the KieModule, mapped by ReleaseId
+     *                     in external form. For a KJAR the hash can be computed by {@link #computeHash(Path)}
+     */
+    public static String computeContextKey( Map<String, byte[]> packageResources, Map<String, String> importedPackages,
+                                            Map<String, String> dependencies ) {
+        MessageDigest digest = newDigest();
+        update( digest, computePackageKey( packageResources ) );
+        update( digest, new TreeMap<>( importedPackages ) );
+        update( digest, new TreeMap<>( dependencies ) );
+        return toHex( digest.digest() );
+    }
+
+    /**
+     * Computes the key of the content of all the resources of a package, mapped by name
+     */
+    public static String computePackageKey( Map<String, byte[]> packageResources ) {
+        MessageDigest digest = newDigest();
+        Map<String, byte[]> sortedResources = new TreeMap<>( packageResources );
+        digest.update( toBytes( sortedResources.size() ) );
+        for ( Map.Entry<String, byte[]> resource : sortedResources.entrySet() ) {
+            update( digest, resource.getKey() );
+            update( digest, resource.getValue() );
+        }
+        return toHex( digest.digest() );
+    }
+
+    /**
+     * Computes the hash of the content of the given file, e.g. of a KJAR
+     */
+    public static String computeHash( Path file ) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream( file )) {
+            for ( int read = in.read( buffer ); read >= 0; read = in.read( buffer ) ) {
+                digest.update( buffer, 0, read );
+            }
+        }
+        return toHex( digest.digest() );
+    }
+
+    /**
+     * Returns the compiled artifacts, e.g. serialized package fragments and class files, mapped by name,
+     * or null if the given key isn't cached
+     */
+    public Map<String, byte[]> get( String key ) {
+        Path entry = getEntryPath( key );
+        if ( !Files.exists( entry ) ) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream( new ByteArrayInputStream( Files.readAllBytes( entry ) ) )) {
+            Map<String, byte[]> artifacts = read( in );
+            hits.incrementAndGet();
+            return artifacts;
+        } catch ( IOException e ) {
+            log.warn( "Discarding unreadable compilation cache entry " + entry, e );
+            deleteQuietly( entry );
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the compiled artifacts of the resource with the given key
+     */
+    public void put( String key, Map<String, byte[]> artifacts ) {
+        Path entry = getEntryPath( key );
+        try {
+            writeAtomically( entry, out -> write( artifacts, out ) );
+        } catch ( IOException e ) {
+            log.warn( "Cannot write compilation cache entry " + entry, e );
+        }
+    }
+
+    /**
+     * Compares the content keys of the resources of the given KieModule with the ones recorded at its last build
+     * @param releaseId the ReleaseId of the KieModule
+     * @param resourceKeys the current content keys, computed by
+     *                     {@link #computeContentKey(byte[], ResourceConfiguration, Map)}, mapped by resource name
+     * @return the added, updated and removed resources, sorted by name. If the KieModule has never been built
+     *         all the resources are reported as added
+     */
+    public List<ResourceChangeSet> getChanges( ReleaseId releaseId, Map<String, String> resourceKeys ) {
+        Map<String, String> previousKeys = getResourceKeys( releaseId );
+        List<ResourceChangeSet> changes = new ArrayList<>();
+        TreeSet<String> names = new TreeSet<>( resourceKeys.keySet() );
+        names.addAll( previousKeys.keySet() );
+        for ( String name : names ) {
+            String current = resourceKeys.get( name );
+            String previous = previousKeys.get( name );
+            if ( previous == null ) {
+                changes.add( new ResourceChangeSet( name, ChangeType.ADDED ) );
+            } else if ( current == null ) {
+                changes.add( new ResourceChangeSet( name, ChangeType.REMOVED ) );
+            } else if ( !current.equals( previous ) ) {
+                changes.add( new ResourceChangeSet( name, ChangeType.UPDATED ) );
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Returns the content keys of the resources of the given KieModule recorded at its last build, mapped by resource name
+     */
+    public Map<String, String> getResourceKeys( ReleaseId releaseId ) {
+        Path index = getModulePath( releaseId );
+        Map<String, String> keys = new TreeMap<>();
+        if ( Files.exists( index ) ) {
+            Properties props = new Properties();
+            try (InputStream in = Files.newInputStream( index )) {
+                props.load( in );
+            } catch ( IOException e ) {
+                log.warn( "Discarding unreadable compilation cache index " + index, e );
+                return keys;
+            }
+            for ( String name : props.stringPropertyNames() ) {
+                keys.put( name, props.getProperty( name ) );
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Records the content keys of the resources of the given KieModule, to be invoked after a successful build
+     */
+    public void setResourceKeys( ReleaseId releaseId, Map<String, String> resourceKeys ) {
+        Path index = getModulePath( releaseId );
+        Properties props = new Properties();
+        props.putAll( resourceKeys );
+        try {
+            writeAtomically( index, out -> props.store( out, releaseId.toExternalForm() ) );
+        } catch ( IOException e ) {
+            log.warn( "Cannot write compilation cache index " + index, e );
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Removes all the entries and indexes of this cache
+     */
+    public void clear() {
+        clear( dir.resolve( ENTRIES_DIR ) );
+        clear( dir.resolve( MODULES_DIR ) );
+    }
+
+    private Path getEntryPath( String key ) {
+        // the key becomes a path, so anything other than a hash could fail or escape the cache directory
+        if ( key.length() != KEY_LENGTH || !key.chars().allMatch( c -> ( c >= '0' && c <= '9' ) || ( c >= 'a' && c <= 'f' ) ) ) {
+            throw new IllegalArgumentException( "Invalid compilation cache key " + key );
+        }
+        // entries are spread on subfolders to avoid too many files in a single folder
+        return dir.resolve( ENTRIES_DIR ).resolve( key.substring( 0, 2 ) ).resolve( key );
+    }
+
+    private Path getModulePath( ReleaseId releaseId ) {
+        String name = releaseId.getGroupId() + "_" + releaseId.getArtifactId() + "_" + releaseId.getVersion();
+        return dir.resolve( MODULES_DIR ).resolve( name.replaceAll( "[^\\w.-]", "_" ) + ".properties" );
+    }
+
+    private static Map<String, byte[]> read( DataInputStream in ) throws IOException {
+        if ( in.readInt() != FORMAT_VERSION ) {
+            throw new IOException( "Unsupported format version" );
+        }
+        // the stream is over the whole entry, so what is available is what remains of it
+        int size = in.readInt();
+        if ( size < 0 || size > in.available() ) {
+            throw new IOException( "Corrupt entry: invalid number of artifacts " + size );
+        }
+        Map<String, byte[]> artifacts = new LinkedHashMap<>();
+        for ( int i = 0; i < size; i++ ) {
+            String name = in.readUTF();
+            int length = in.readInt();
+            if ( length < 0 || length > in.available() ) {
+                throw new IOException( "Corrupt entry: invalid length " + length + " of artifact " + name );
+            }
+            byte[] bytes = new byte[length];
+            in.readFully( bytes );
+            artifacts.put( name, bytes );
+        }
+        return artifacts;
+    }
+
+    private static void write( Map<String, byte[]> artifacts, OutputStream os ) throws IOException {
+        DataOutputStream out = new DataOutputStream( os );
+        out.writeInt( FORMAT_VERSION );
+        out.writeInt( artifacts.size() );
+        for ( Map.Entry<String, byte[]> artifact : artifacts.entrySet() ) {
+            out.writeUTF( artifact.getKey() );
+            out.writeInt( artifact.getValue().length );
+            out.write( artifact.getValue() );
+        }
+        out.flush();
+    }
+
+    private interface Writer {
+        void write( OutputStream out ) throws IOException;
+    }
+
+    private static void writeAtomically( Path target, Writer writer ) throws IOException {
+        Files.createDirectories( target.getParent() );
+        Path tmp = Files.createTempFile( target.getParent(), target.getFileName().toString(), ".tmp" );
+        try {
+            try (OutputStream out = new BufferedOutputStream( Files.newOutputStream( tmp ) )) {
+                writer.write( out );
+            }
+            try {
+                Files.move( tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+            } catch ( AtomicMoveNotSupportedException e ) {
+                Files.move( tmp, target, StandardCopyOption.REPLACE_EXISTING );
+            }
+        } finally {
+            deleteQuietly( tmp );
+        }
+    }
+
+    private static void clear( Path folder ) {
+        if ( !Files.isDirectory( folder ) ) {
+            return;
+        }
+        try (DirectoryStream<Path> children = Files.newDirectoryStream( folder )) {
+            for ( Path child : children ) {
+                if ( Files.isDirectory( child ) ) {
+                    clear( child );
+                }
+                deleteQuietly( child );
+            }
+        } catch ( IOException e ) {
+            log.warn( "Cannot clear compilation cache folder " + folder, e );
+        }
+    }
+
+    private static void deleteQuietly( Path path ) {
+        try {
+            Files.deleteIfExists( path );
+        } catch ( IOException e ) {
+            // ignore
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance( "SHA-256" );
+        } catch ( NoSuchAlgorithmException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static void update( MessageDigest digest, Map<String, String> sortedEntries ) {
+        if ( sortedEntries == null ) {
+            digest.update( toBytes( -1 ) );
+            return;
+        }
+        digest.update( toBytes( sortedEntries.size() ) );
+        for ( Map.Entry<String, String> entry : sortedEntries.entrySet() ) {
+            update( digest, entry.getKey() );
+            update( digest, entry.getValue() );
+        }
+    }
+
+    private static void update( MessageDigest digest, String value ) {
+        update( digest, value != null ? value.getBytes( StandardCharsets.UTF_8 ) : null );
+    }
+
+    private static void update( MessageDigest digest, byte[] bytes ) {
+        if ( bytes == null ) {
+            digest.update( toBytes( -1 ) );
+            return;
+        }
+        digest.update( toBytes( bytes.length ) );
+        digest.update( bytes );
+    }
+
+    private static byte[] toBytes( int value ) {
+        return new byte[] { (byte) ( value >>> 24 ), (byte) ( value >>> 16 ), (byte) ( value >>> 8 ), (byte) value };
+    }
+
+    private static String toHex( byte[] bytes ) {
+        StringBuilder sb = new StringBuilder( bytes.length * 2 );
+        for ( byte b : bytes ) {
+            sb.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.builder;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.kie.api.concurrent.KieExecutors;
+import org.kie.internal.builder.conf.ParallelBuildThreadsOption;
+import org.kie.internal.concurrent.ExecutorProviderFactory;
+
+/**
+ * Schedules the compilation of the KieBases of a KieModule on a bounded pool of threads.
+ * <p>
+ * A KieBase is compiled only after all the KieBases it includes, so that their packages are available when it is
+ * built, while KieBases not depending one on the other are compiled concurrently. The includes not defined in the
+ * same KieModule, i.e. the ones provided by its dependencies, are considered already built.
+ * <p>
+ * The results are always returned in the declaration order of the KieBases, regardless of the order in which
+ * their compilation completed, so that the messages aggregated from them are deterministic.
+ */
+public class KieBaseBuildScheduler {
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private KieBaseBuildScheduler() { }
+
+    /**
+     * Compiles the given KieBases on a pool provided by the {@link KieExecutors} service, or on a local one
+     * if that service isn't available
+     * @param kBaseIncludes the names of the included KieBases, mapped by the name of the KieBase including them
+     *                      and in declaration order
+     * @param builder the function compiling the KieBase with the given name
+     * @param parallelism the maximum number of KieBases compiled at the same time.
+     *                    With 1 or less they are compiled one after the other in the calling thread
+     * @return the results of the builder mapped by KieBase name and in declaration order
+     * @see ParallelBuildThreadsOption
+     */
+    public static <R> Map<String, R> buildAll( Map<String, ? extends Collection<String>> kBaseIncludes,
+                                               Function<String, R> builder, int parallelism ) {
+        checkCircularIncludes( kBaseIncludes );
+        if ( parallelism <= 1 || kBaseIncludes.size() <= 1 ) {
+            return buildSequentially( kBaseIncludes, builder );
+        }
+        int threads = Math.min( parallelism, kBaseIncludes.size() );
+        KieExecutors executorProvider = ExecutorProviderFactory.getExecutorProvider();
+        ExecutorService executor = executorProvider != null ?
+                                   executorProvider.newFixedThreadPool( threads ) :
+                                   Executors.newFixedThreadPool( threads, r -> {
+                                       Thread t = new Thread( r, "kie-base-build-" + threadCount.incrementAndGet() );
+                                       t.setDaemon( true );
+                                       return t;
+                                   } );
+        try {
+            return buildAll( kBaseIncludes, builder, executor );
+        } finally {
+            // all the compilations are completed at this point
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Compiles the given KieBases on the given executor. When a compilation fails, the ones not started yet
+     * are skipped and its exception is thrown as soon as the ones already running complete.
+     * @see #buildAll(Map, Function, int)
+     */
+    public static <R> Map<String, R> buildAll( Map<String, ? extends Collection<String>> kBaseIncludes,
+                                               Function<String, R> builder, ExecutorService executor ) {
+        // circular includes are detected before scheduling anything, so that nothing is built
+        checkCircularIncludes( kBaseIncludes );
+
+        Map<String, BuildTask<R>> tasks = new LinkedHashMap<>();
+        for ( String kBaseName : kBaseIncludes.keySet() ) {
+            schedule( kBaseName, kBaseIncludes, builder, executor, tasks );
+        }
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for ( BuildTask<R> task : tasks.values() ) {
+            task.future.whenComplete( ( result, error ) -> {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if ( cause != null && !( cause instanceof CancellationException ) && failure.compareAndSet( null, cause ) ) {
+                    tasks.values().forEach( BuildTask::skip );
+                }
+            } );
+        }
+        // the futures are never cancelled, so this also waits for the compilations already running
+        CompletableFuture<?>[] futures = tasks.values().stream().map( task -> task.future ).toArray( CompletableFuture<?>[]::new );
+        try {
+            CompletableFuture.allOf( futures ).join();
+        } catch ( CompletionException e ) {
+            // the first failure is rethrown below
+        }
+        if ( failure.get() != null ) {
+            throw unwrap( failure.get() );
+        }
+
+        Map<String, R> results = new LinkedHashMap<>();
+        for ( String kBaseName : kBaseIncludes.keySet() ) {
+            results.put( kBaseName, tasks.get( kBaseName ).future.join() );
+        }
+        return results;
+    }
+
+    private static class BuildTask<R> {
+
+        private static final int PENDING = 0;
+        private static final int RUNNING = 1;
+        private static final int SKIPPED = 2;
+
+        private final AtomicInteger state = new AtomicInteger( PENDING );
+        private CompletableFuture<R> future;
+
+        private R build( String kBaseName, Function<String, R> builder ) {
+            if ( !state.compareAndSet( PENDING, RUNNING ) ) {
+                throw new CancellationException( "Compilation of KieBase " + kBaseName + " skipped after a failure" );
+            }
+            return builder.apply( kBaseName );
+        }
+
+        private void skip() {
+            state.compareAndSet( PENDING, SKIPPED );
+        }
+    }
+
+    private static <R> BuildTask<R> schedule( String kBaseName, Map<String, ? extends Collection<String>> kBaseIncludes,
+                                              Function<String, R> builder, ExecutorService executor,
+                                              Map<String, BuildTask<R>> tasks ) {
+        BuildTask<R> task = tasks.get( kBaseName );
+        if ( task != null ) {
+            return task;
+        }
+
+        CompletableFuture<?>[] dependencies = getIncludes( kBaseName, kBaseIncludes ).stream()
+                .filter( kBaseIncludes::containsKey )
+                .map( include -> schedule( include, kBaseIncludes, builder, executor, tasks ).future )
+                .toArray( CompletableFuture<?>[]::new );
+
+        BuildTask<R> newTask = new BuildTask<>();
+        newTask.future = CompletableFuture.allOf( dependencies ).thenApplyAsync( v -> newTask.build( kBaseName, builder ), executor );
+        tasks.put( kBaseName, newTask );
+        return newTask;
+    }
+
+    private static void checkCircularIncludes( Map<String, ? extends Collection<String>> kBaseIncludes ) {
+        Set<String> checked = new HashSet<>();
+        for ( String kBaseName : kBaseIncludes.keySet() ) {
+            checkCircularIncludes( kBaseName, kBaseIncludes, checked, new HashSet<>() );
+        }
+    }
+
+    private static void checkCircularIncludes( String kBaseName, Map<String, ? extends Collection<String>> kBaseIncludes,
+                                               Set<String> checked, Set<String> visiting ) {
+        if ( checked.contains( kBaseName ) ) {
+            return;
+        }
+        if ( !visiting.add( kBaseName ) ) {
+            throw new IllegalStateException( "Circular includes involving KieBase " + kBaseName );
+        }
+        for ( String include : getIncludes( kBaseName, kBaseIncludes ) ) {
+            if ( kBaseIncludes.containsKey( include ) ) {
+                checkCircularIncludes( include, kBaseIncludes, checked, visiting );
+            }
+        }
+        visiting.remove( kBaseName );
+        checked.add( kBaseName );
+    }
+
+    private static <R> Map<String, R> buildSequentially( Map<String, ? extends Collection<String>> kBaseIncludes,
+                                                         Function<String, R> builder ) {
+        Map<String, R> built = new LinkedHashMap<>();
+        for ( String kBaseName : kBaseIncludes.keySet() ) {
+            buildSequentially( kBaseName, kBaseIncludes, builder, built );
+        }
+        Map<String, R> results = new LinkedHashMap<>();
+        for ( String kBaseName : kBaseIncludes.keySet() ) {
+            results.put( kBaseName, built.get( kBaseName ) );
+        }
+        return results;
+    }
+
+    private static <R> void buildSequentially( String kBaseName, Map<String, ? extends Collection<String>> kBaseIncludes,
+                                               Function<String, R> builder, Map<String, R> built ) {
+        if ( built.containsKey( kBaseName ) ) {
+            return;
+        }
+        for ( String include : getIncludes( kBaseName, kBaseIncludes ) ) {
+            if ( kBaseIncludes.containsKey( include ) ) {
+                buildSequentially( include, kBaseIncludes, builder, built );
+            }
+        }
+        built.put( kBaseName, builder.apply( kBaseName ) );
+    }
+
+    private static Collection<String> getIncludes( String kBaseName, Map<String, ? extends Collection<String>> kBaseIncludes ) {
+        Collection<String> includes = kBaseIncludes.get( kBaseName );
+        return includes != null ? includes : Collections.emptyList();
+    }
+
+    private static RuntimeException unwrap( Throwable cause ) {
+        if ( cause instanceof RuntimeException ) {
+            return (RuntimeException) cause;
+        }
+        if ( cause instanceof Error ) {
+            throw (Error) cause;
+        }
+        return new CompletionException( cause );
+    }
+}
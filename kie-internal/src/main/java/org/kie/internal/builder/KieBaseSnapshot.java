@@ -0,0 +1,249 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.builder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.kie.api.builder.ReleaseId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A fully built KieBase serialized in a versioned binary file stored next to its KJAR, allowing a KieContainer
+ * to skip the compilation of the rules, the generation of the classes and the construction of the network.
+ * <p>
+ * The file is made of a header, containing the ReleaseId of the KieModule, a key of the builder options used
+ * to build the KieBase and a key of the content of the KJAR and of its dependencies, followed by a set of named
+ * sections, e.g. the bytecode of the generated classes and the
+ * serialized network. When it is opened the file is memory-mapped and each section is exposed as a read-only
+ * {@link ByteBuffer} over the mapped region, so nothing is read until it is actually used.
+ * <p>
+ * A snapshot is used only if its ReleaseId, its builder options key and its content key all match the ones of
+ * the KieContainer, so that a rebuilt SNAPSHOT KJAR or a changed dependency never loads a stale KieBase,
+ * otherwise it is ignored and the KieBase is compiled as usual. The outcome is exposed through
+ * {@link org.kie.api.management.KieContainerMonitorMXBean#getKieBaseSnapshotStatus()}.
+ */
+public class KieBaseSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger( KieBaseSnapshot.class );
+
+    public static final String FILE_EXTENSION = ".kbs";
+
+    private static final int MAGIC = 0x4B425353; // KBSS
+    private static final int FORMAT_VERSION = 2;
+
+    public enum Status {
+        /** The KieBase has been loaded from its snapshot */
+        HIT,
+        /** There is no valid snapshot for the KieBase, so it has been compiled */
+        MISS,
+        /** The use of snapshots is disabled */
+        DISABLED
+    }
+
+    private final ReleaseId releaseId;
+    private final String optionsKey;
+    private final String contentKey;
+    private final Map<String, ByteBuffer> sections;
+
+    private KieBaseSnapshot( ReleaseId releaseId, String optionsKey, String contentKey, Map<String, ByteBuffer> sections ) {
+        this.releaseId = releaseId;
+        this.optionsKey = optionsKey;
+        this.contentKey = contentKey;
+        this.sections = sections;
+    }
+
+    public ReleaseId getReleaseId() {
+        return releaseId;
+    }
+
+    public String getOptionsKey() {
+        return optionsKey;
+    }
+
+    public String getContentKey() {
+        return contentKey;
+    }
+
+    public Set<String> getSectionNames() {
+        return sections.keySet();
+    }
+
+    /**
+     * Returns a read-only view of the section with the given name, or null if there isn't such a section
+     */
+    public ByteBuffer getSection( String name ) {
+        ByteBuffer section = sections.get( name );
+        return section != null ? section.duplicate() : null;
+    }
+
+    /**
+     * Returns the path of the snapshot of the KieBase with the given name, stored next to the given KJAR
+     */
+    public static Path getSnapshotPath( File kjar, String kBaseName ) {
+        return kjar.toPath().resolveSibling( kjar.getName() + "." + kBaseName + FILE_EXTENSION );
+    }
+
+    /**
+     * Computes the key identifying the builder options a snapshot has been built with,
+     * using {@link CompilationCache#computeContentKey(byte[], org.kie.api.io.ResourceConfiguration, Map)}
+     */
+    public static String computeOptionsKey( Map<String, String> builderOptions ) {
+        return CompilationCache.computeContentKey( new byte[0], null, builderOptions );
+    }
+
+    /**
+     * Computes the key identifying the content of the given KJAR and of its dependencies, so that a snapshot
+     * is invalidated when any of them is rebuilt, as it normally happens for SNAPSHOT versions
+     */
+    public static String computeContentKey( File kjar, Collection<File> dependencies ) throws IOException {
+        Map<String, String> hashes = new TreeMap<>();
+        // the KJAR is keyed by an empty name, which can't clash with the path of a dependency
+        hashes.put( "", CompilationCache.computeHash( kjar.toPath() ) );
+        for ( File dependency : dependencies ) {
+            hashes.put( dependency.getAbsolutePath(), CompilationCache.computeHash( dependency.toPath() ) );
+        }
+        return CompilationCache.computeContextKey( Collections.emptyMap(), Collections.emptyMap(), hashes );
+    }
+
+    /**
+     * Opens the snapshot stored in the given file
+     * @return the snapshot, or null if the file doesn't exist, it is unreadable or corrupt, or it doesn't match
+     *         the given ReleaseId, builder options key and content key
+     */
+    public static KieBaseSnapshot open( Path file, ReleaseId releaseId, String optionsKey, String contentKey ) {
+        if ( !Files.isRegularFile( file ) ) {
+            return null;
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open( file, StandardOpenOption.READ )) {
+            buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+        } catch ( IOException | IllegalArgumentException e ) {
+            // IllegalArgumentException is thrown mapping a file larger than 2GB
+            log.warn( "Cannot read KieBase snapshot " + file, e );
+            return null;
+        }
+
+        try {
+            if ( buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION ) {
+                log.debug( "Ignoring KieBase snapshot {} with unsupported format", file );
+                return null;
+            }
+            String snapshotReleaseId = readString( buffer );
+            String snapshotOptionsKey = readString( buffer );
+            String snapshotContentKey = readString( buffer );
+            if ( !snapshotReleaseId.equals( releaseId.toExternalForm() ) || !snapshotOptionsKey.equals( optionsKey ) ) {
+                log.debug( "Ignoring KieBase snapshot {} built for {} with different options", file, snapshotReleaseId );
+                return null;
+            }
+            if ( !snapshotContentKey.equals( contentKey ) ) {
+                log.debug( "Ignoring stale KieBase snapshot {}, the KJAR or its dependencies changed", file );
+                return null;
+            }
+
+            int size = readLength( buffer );
+            Map<String, ByteBuffer> sections = new LinkedHashMap<>();
+            for ( int i = 0; i < size; i++ ) {
+                String name = readString( buffer );
+                int length = readLength( buffer );
+                ByteBuffer section = buffer.slice();
+                section.limit( length );
+                sections.put( name, section.asReadOnlyBuffer() );
+                buffer.position( buffer.position() + length );
+            }
+            return new KieBaseSnapshot( releaseId, optionsKey, contentKey, Collections.unmodifiableMap( sections ) );
+        } catch ( BufferUnderflowException | IllegalArgumentException e ) {
+            log.warn( "Ignoring corrupt KieBase snapshot " + file + ": " + e.getMessage() );
+            return null;
+        }
+    }
+
+    /**
+     * Atomically writes a snapshot in the given file
+     * @param sections the content of the snapshot, mapped by section name
+     */
+    public static void write( Path file, ReleaseId releaseId, String optionsKey, String contentKey,
+                              Map<String, byte[]> sections ) throws IOException {
+        Path folder = file.toAbsolutePath().getParent();
+        Files.createDirectories( folder );
+        Path tmp = Files.createTempFile( folder, file.getFileName().toString(), ".tmp" );
+        try {
+            try (OutputStream os = Files.newOutputStream( tmp )) {
+                DataOutputStream out = new DataOutputStream( os );
+                out.writeInt( MAGIC );
+                out.writeInt( FORMAT_VERSION );
+                writeString( out, releaseId.toExternalForm() );
+                writeString( out, optionsKey );
+                writeString( out, contentKey );
+                out.writeInt( sections.size() );
+                for ( Map.Entry<String, byte[]> section : sections.entrySet() ) {
+                    writeString( out, section.getKey() );
+                    out.writeInt( section.getValue().length );
+                    out.write( section.getValue() );
+                }
+                out.flush();
+            }
+            try {
+                Files.move( tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+            } catch ( AtomicMoveNotSupportedException e ) {
+                Files.move( tmp, file, StandardCopyOption.REPLACE_EXISTING );
+            }
+        } finally {
+            Files.deleteIfExists( tmp );
+        }
+    }
+
+    private static int readLength( ByteBuffer buffer ) {
+        int length = buffer.getInt();
+        if ( length < 0 || length > buffer.remaining() ) {
+            throw new IllegalArgumentException( "invalid length " + length + " at position " + buffer.position() );
+        }
+        return length;
+    }
+
+    private static String readString( ByteBuffer buffer ) {
+        byte[] bytes = new byte[readLength( buffer )];
+        buffer.get( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    private static void writeString( DataOutputStream out, String s ) throws IOException {
+        byte[] bytes = s.getBytes( StandardCharsets.UTF_8 );
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+}
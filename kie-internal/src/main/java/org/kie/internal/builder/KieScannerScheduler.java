@@ -0,0 +1,409 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.internal.builder;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.kie.api.builder.KieScanner;
+import org.kie.api.builder.ReleaseId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scheduler shared by all the KieScanners of a JVM, replacing one timer per scanner.
+ * <p>
+ * The scanners polling for new versions of the same GroupId:ArtifactId and version, or version range, share a
+ * single check, e.g. the resolution of the maven metadata, performed at the shortest of their intervals. Only when
+ * the check reports an update {@link KieScanner#scanNow()} is invoked on each of them, so the status transitions and
+ * the KieScannerEventListener notifications of each scanner stay unchanged. The checks and the scans run on a pool
+ * of worker threads, so a slow one doesn't delay the others, while the runs of the same check or scan never overlap.
+ * <p>
+ * When the artifact lives in a local or file based repository the scanners can instead be driven by the changes
+ * notified by a {@link WatchService} on its folder. The scanners watching the same artifact folder share the
+ * watch, and bursts of changes, like the ones caused by copying a new version, are debounced into a single scan.
+ */
+public class KieScannerScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger( KieScannerScheduler.class );
+
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 1000;
+
+    private static class LazyHolder {
+        static final KieScannerScheduler INSTANCE = new KieScannerScheduler();
+    }
+
+    public static KieScannerScheduler getInstance() {
+        return LazyHolder.INSTANCE;
+    }
+
+    private final AtomicInteger workerCount = new AtomicInteger();
+
+    private final Map<String, PollingGroup> pollingGroups = new ConcurrentHashMap<>();
+    private final Map<String, WatchGroup> watchGroups = new ConcurrentHashMap<>();
+    private final Map<WatchKey, WatchGroup> watchedFolders = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService workers;
+    private WatchService watchService;
+
+    /**
+     * Registers a scanner polling for new versions of the given artifact.
+     * @param releaseId the ReleaseId of the KieModule scanned
+     * @param scanner the scanner to be triggered when a new version is available
+     * @param pollingInterval the polling interval in milliseconds. When more scanners poll the same artifact
+     *                        and version, the shortest one is used
+     * @param updateCheck the check for new versions of the artifact, performed once for all the scanners polling
+     *                    the same artifact and version. The one of the first scanner registered is used
+     */
+    public synchronized Registration schedule( ReleaseId releaseId, KieScanner scanner, long pollingInterval, BooleanSupplier updateCheck ) {
+        if ( pollingInterval <= 0 ) {
+            throw new IllegalArgumentException( "Polling interval must be positive" );
+        }
+        String key = releaseId.getGroupId() + ":" + releaseId.getArtifactId() + ":" + releaseId.getVersion();
+        PollingGroup group = pollingGroups.computeIfAbsent( key, k -> new PollingGroup( k, updateCheck ) );
+        Registration registration = new Registration( group, null, scanner );
+        group.registrations.put( registration, pollingInterval );
+        group.reschedule();
+        return registration;
+    }
+
+    /**
+     * Registers a scanner triggered by the changes in the folder of the given artifact in a local repository,
+     * i.e. the folder containing one subfolder per version.
+     * @param releaseId the ReleaseId of the KieModule scanned
+     * @param scanner the scanner to be triggered when the content of the folder changes
+     * @param artifactFolder the folder of the artifact
+     * @param debounceMillis the quiet time in milliseconds after the last change before triggering the scanners.
+     *                       When more scanners watch the same artifact folder, the shortest one is used
+     */
+    public synchronized Registration watch( ReleaseId releaseId, KieScanner scanner, Path artifactFolder, long debounceMillis ) throws IOException {
+        // the same artifact can live in more repositories, so the watch is shared only by the same folder
+        String key = artifactFolder.toAbsolutePath().normalize().toString();
+        WatchGroup group = watchGroups.get( key );
+        if ( group == null ) {
+            group = new WatchGroup( key );
+            register( artifactFolder, group );
+            // versions are subfolders: they are watched too, in order to be notified when their content changes
+            try (DirectoryStream<Path> versions = Files.newDirectoryStream( artifactFolder, Files::isDirectory )) {
+                for ( Path version : versions ) {
+                    register( version, group );
+                }
+            } catch (IOException e) {
+                group.cancel();
+                throw e;
+            }
+            watchGroups.put( key, group );
+        }
+        group.scanners.put( scanner, debounceMillis );
+        return new Registration( null, group, scanner );
+    }
+
+    public synchronized void shutdown() {
+        pollingGroups.values().forEach( PollingGroup::cancel );
+        pollingGroups.clear();
+        watchGroups.values().forEach( WatchGroup::cancel );
+        watchGroups.clear();
+        watchedFolders.clear();
+        if ( scheduler != null ) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if ( workers != null ) {
+            workers.shutdownNow();
+            workers = null;
+        }
+        if ( watchService != null ) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn( "Cannot close the WatchService of the KieScanners", e );
+            }
+            watchService = null;
+        }
+    }
+
+    private synchronized void unregister( Registration registration ) {
+        PollingGroup pollingGroup = registration.pollingGroup;
+        if ( pollingGroup != null && pollingGroup.registrations.remove( registration ) != null ) {
+            if ( pollingGroup.registrations.isEmpty() ) {
+                pollingGroup.cancel();
+                pollingGroups.remove( pollingGroup.key, pollingGroup );
+            } else {
+                pollingGroup.reschedule();
+            }
+        }
+        WatchGroup group = registration.watchGroup;
+        if ( group != null ) {
+            group.scanners.remove( registration.scanner );
+            if ( group.scanners.isEmpty() ) {
+                group.cancel();
+                watchGroups.remove( group.key, group );
+            }
+        }
+    }
+
+    private ScheduledExecutorService getScheduler() {
+        if ( scheduler == null ) {
+            scheduler = Executors.newSingleThreadScheduledExecutor( r -> {
+                Thread t = new Thread( r, "kie-scanner-scheduler" );
+                t.setDaemon( true );
+                return t;
+            } );
+        }
+        return scheduler;
+    }
+
+    private synchronized Executor getWorkers() {
+        if ( workers == null ) {
+            workers = Executors.newCachedThreadPool( r -> {
+                Thread t = new Thread( r, "kie-scanner-" + workerCount.incrementAndGet() );
+                t.setDaemon( true );
+                return t;
+            } );
+        }
+        return workers;
+    }
+
+    private void register( Path folder, WatchGroup group ) throws IOException {
+        if ( watchService == null ) {
+            watchService = FileSystems.getDefault().newWatchService();
+            Thread watcher = new Thread( this::processWatchEvents, "kie-scanner-watcher" );
+            watcher.setDaemon( true );
+            watcher.start();
+        }
+        WatchKey key = folder.register( watchService,
+                                        StandardWatchEventKinds.ENTRY_CREATE,
+                                        StandardWatchEventKinds.ENTRY_MODIFY,
+                                        StandardWatchEventKinds.ENTRY_DELETE );
+        watchedFolders.put( key, group );
+    }
+
+    private void processWatchEvents() {
+        WatchService service;
+        synchronized ( this ) {
+            service = watchService;
+        }
+        try {
+            while ( true ) {
+                WatchKey key = service.take();
+                WatchGroup group = watchedFolders.get( key );
+                if ( group != null ) {
+                    Path folder = (Path) key.watchable();
+                    key.pollEvents().forEach( event -> {
+                        if ( event.kind() == StandardWatchEventKinds.ENTRY_CREATE ) {
+                            Path created = folder.resolve( (Path) event.context() );
+                            if ( Files.isDirectory( created ) ) {
+                                registerNewVersion( created, group );
+                            }
+                        }
+                    } );
+                    group.debounce();
+                } else {
+                    key.pollEvents();
+                }
+                if ( !key.reset() ) {
+                    watchedFolders.remove( key );
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // the scheduler has been shut down
+        }
+    }
+
+    private synchronized void registerNewVersion( Path folder, WatchGroup group ) {
+        if ( watchGroups.get( group.key ) != group ) {
+            // the group has been cancelled meanwhile
+            return;
+        }
+        try {
+            register( folder, group );
+        } catch (IOException e) {
+            log.warn( "Cannot watch folder " + folder, e );
+        }
+    }
+
+    /**
+     * A task run on the worker threads when triggered. The triggers received while it's running are coalesced
+     * into a single further run, so that its runs never overlap.
+     */
+    private class SerialTask implements Runnable {
+
+        private final String errorMessage;
+        private final Runnable body;
+        private final AtomicInteger triggers = new AtomicInteger();
+
+        private SerialTask( String errorMessage, Runnable body ) {
+            this.errorMessage = errorMessage;
+            this.body = body;
+        }
+
+        @Override
+        public void run() {
+            if ( triggers.getAndIncrement() == 0 ) {
+                try {
+                    getWorkers().execute( this::drain );
+                } catch (RejectedExecutionException e) {
+                    // the scheduler has been shut down
+                }
+            }
+        }
+
+        private void drain() {
+            int handled = triggers.get();
+            while ( true ) {
+                try {
+                    body.run();
+                } catch (RuntimeException e) {
+                    log.error( errorMessage, e );
+                }
+                if ( triggers.addAndGet( -handled ) == 0 ) {
+                    return;
+                }
+                handled = triggers.get();
+            }
+        }
+    }
+
+    private class PollingGroup {
+
+        private final String key;
+        /* the polling scanners with their interval */
+        private final Map<Registration, Long> registrations = new ConcurrentHashMap<>();
+        private final SerialTask check;
+
+        private ScheduledFuture<?> polling;
+        private long pollingInterval;
+
+        private PollingGroup( String key, BooleanSupplier updateCheck ) {
+            this.key = key;
+            this.check = new SerialTask( "Error checking for new versions of " + key, () -> {
+                if ( updateCheck.getAsBoolean() ) {
+                    // each scanner is scanned by its own task, so a slow one doesn't delay the others
+                    registrations.keySet().forEach( registration -> registration.scan.run() );
+                }
+            } );
+        }
+
+        private void reschedule() {
+            long interval = registrations.values().stream().mapToLong( Long::longValue ).min().getAsLong();
+            if ( interval != pollingInterval ) {
+                cancel();
+                pollingInterval = interval;
+                polling = getScheduler().scheduleWithFixedDelay( check, interval, interval, TimeUnit.MILLISECONDS );
+            }
+        }
+
+        private void cancel() {
+            if ( polling != null ) {
+                polling.cancel( false );
+            }
+        }
+    }
+
+    private class WatchGroup {
+
+        private final String key;
+        /* the watching scanners with their debounce time */
+        private final Map<KieScanner, Long> scanners = new ConcurrentHashMap<>();
+        private final SerialTask scanAll;
+
+        private ScheduledFuture<?> pendingScan;
+
+        private WatchGroup( String key ) {
+            this.key = key;
+            this.scanAll = new SerialTask( "Error scanning " + key, this::scanAll );
+        }
+
+        private void debounce() {
+            synchronized ( KieScannerScheduler.this ) {
+                if ( pendingScan != null ) {
+                    pendingScan.cancel( false );
+                }
+                long debounceMillis = scanners.values().stream().mapToLong( Long::longValue ).min().orElse( DEFAULT_DEBOUNCE_MILLIS );
+                pendingScan = getScheduler().schedule( scanAll, debounceMillis, TimeUnit.MILLISECONDS );
+            }
+        }
+
+        private void scanAll() {
+            for ( KieScanner scanner : scanners.keySet() ) {
+                try {
+                    scanner.scanNow();
+                } catch (RuntimeException e) {
+                    log.error( "Error scanning " + key, e );
+                }
+            }
+        }
+
+        private void cancel() {
+            if ( pendingScan != null ) {
+                pendingScan.cancel( false );
+            }
+            Iterator<Map.Entry<WatchKey, WatchGroup>> folders = watchedFolders.entrySet().iterator();
+            while ( folders.hasNext() ) {
+                Map.Entry<WatchKey, WatchGroup> folder = folders.next();
+                if ( folder.getValue() == this ) {
+                    folder.getKey().cancel();
+                    folders.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * The registration of a scanner, to be cancelled when the scanner is stopped or shut down
+     */
+    public class Registration {
+
+        private final PollingGroup pollingGroup;
+        private final WatchGroup watchGroup;
+        private final KieScanner scanner;
+        private final SerialTask scan;
+
+        private Registration( PollingGroup pollingGroup, WatchGroup watchGroup, KieScanner scanner ) {
+            this.pollingGroup = pollingGroup;
+            this.watchGroup = watchGroup;
+            this.scanner = scanner;
+            this.scan = new SerialTask( "Error scanning " + ( pollingGroup != null ? pollingGroup.key : watchGroup.key ), scanner::scanNow );
+        }
+
+        public void cancel() {
+            unregister( this );
+        }
+    }
+}
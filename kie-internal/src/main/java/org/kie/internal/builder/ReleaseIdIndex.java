@@ -0,0 +1,261 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.internal.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.builder.ReleaseIdComparator.ComparableVersion;
+
+/**
+ * Index of values, typically KieModules, identified by a ReleaseId.
+ * For each GroupId:ArtifactId the versions are kept sorted, so that the LATEST and RELEASE versions,
+ * or the highest version within a maven range like <code>[1.0,2.0)</code>, are resolved in O(log n)
+ * and without sorting all the available versions.
+ */
+public class ReleaseIdIndex<T> {
+
+    public static final String LATEST = "LATEST";
+    public static final String RELEASE = "RELEASE";
+
+    private static final String SNAPSHOT = "SNAPSHOT";
+
+    private final Map<String, Versions<T>> versionsByArtifact = new ConcurrentHashMap<>();
+
+    public void put( ReleaseId releaseId, T value ) {
+        versionsByArtifact.compute( getArtifactKey( releaseId ), ( key, versions ) -> {
+            Versions<T> updated = versions != null ? versions : new Versions<>();
+            VersionKey versionKey = VersionKey.of( releaseId.getVersion() );
+            updated.all.put( versionKey, value );
+            if ( !isSnapshot( versionKey.value ) ) {
+                updated.releases.put( versionKey, value );
+            }
+            return updated;
+        } );
+    }
+
+    public T remove( ReleaseId releaseId ) {
+        AtomicReference<T> removed = new AtomicReference<>();
+        versionsByArtifact.computeIfPresent( getArtifactKey( releaseId ), ( key, versions ) -> {
+            VersionKey versionKey = VersionKey.of( releaseId.getVersion() );
+            removed.set( versions.all.remove( versionKey ) );
+            versions.releases.remove( versionKey );
+            return versions.all.isEmpty() ? null : versions;
+        } );
+        return removed.get();
+    }
+
+    /**
+     * Returns the value of the given ReleaseId, whose version can be either a fixed one, LATEST, RELEASE
+     * or a maven version range. In the last 3 cases the value with the highest matching version is returned.
+     * A fixed version is matched exactly, so for instance 1.0 and 1.0.0 are different versions.
+     */
+    public T get( ReleaseId releaseId ) {
+        Versions<T> versions = versionsByArtifact.get( getArtifactKey( releaseId ) );
+        if ( versions == null ) {
+            return null;
+        }
+
+        String version = releaseId.getVersion();
+        if ( LATEST.equals( version ) ) {
+            return lastValue( versions.all );
+        }
+        if ( RELEASE.equals( version ) ) {
+            return lastValue( versions.releases );
+        }
+        if ( isRange( version ) ) {
+            return getHighestInRange( versions.all, version );
+        }
+        return versions.all.get( VersionKey.of( version ) );
+    }
+
+    public boolean isEmpty() {
+        return versionsByArtifact.isEmpty();
+    }
+
+    public void clear() {
+        versionsByArtifact.clear();
+    }
+
+    public static boolean isRange( String version ) {
+        return version.startsWith( "[" ) || version.startsWith( "(" );
+    }
+
+    private static boolean isSnapshot( String version ) {
+        return version.regionMatches( true, version.length() - SNAPSHOT.length(), SNAPSHOT, 0, SNAPSHOT.length() );
+    }
+
+    private static <T> T lastValue( NavigableMap<VersionKey, T> versions ) {
+        Map.Entry<VersionKey, T> last = versions.lastEntry();
+        return last != null ? last.getValue() : null;
+    }
+
+    private static String getArtifactKey( ReleaseId releaseId ) {
+        return releaseId.getGroupId() + ":" + releaseId.getArtifactId();
+    }
+
+    private T getHighestInRange( NavigableMap<VersionKey, T> versions, String range ) {
+        VersionKey best = null;
+        T bestValue = null;
+        for ( Restriction restriction : parseRange( range ) ) {
+            NavigableMap<VersionKey, T> matching = restriction.subMap( versions );
+            Map.Entry<VersionKey, T> highest = matching.lastEntry();
+            if ( highest != null && ( best == null || highest.getKey().compareTo( best ) > 0 ) ) {
+                best = highest.getKey();
+                bestValue = highest.getValue();
+            }
+        }
+        return bestValue;
+    }
+
+    /**
+     * Parses a maven version range made of one or more comma separated restrictions,
+     * e.g. <code>[1.0]</code>, <code>(,1.0]</code>, <code>[1.2,1.3)</code> or <code>[1.0,2.0),[3.0,)</code>
+     */
+    static List<Restriction> parseRange( String range ) {
+        List<Restriction> restrictions = new ArrayList<>();
+        String remaining = range.trim();
+        while ( remaining.startsWith( "[" ) || remaining.startsWith( "(" ) ) {
+            int end = indexOfClosing( remaining );
+            if ( end < 0 ) {
+                throw new IllegalArgumentException( "Unbounded version range " + range );
+            }
+            restrictions.add( parseRestriction( remaining.substring( 0, end + 1 ), range ) );
+            remaining = remaining.substring( end + 1 ).trim();
+            if ( remaining.startsWith( "," ) ) {
+                remaining = remaining.substring( 1 ).trim();
+            }
+        }
+        if ( !remaining.isEmpty() ) {
+            throw new IllegalArgumentException( "Invalid version range " + range );
+        }
+        return restrictions;
+    }
+
+    private static int indexOfClosing( String range ) {
+        int square = range.indexOf( ']' );
+        int round = range.indexOf( ')' );
+        return square < 0 ? round : round < 0 ? square : Math.min( square, round );
+    }
+
+    private static Restriction parseRestriction( String spec, String range ) {
+        boolean lowerInclusive = spec.charAt( 0 ) == '[';
+        boolean upperInclusive = spec.charAt( spec.length() - 1 ) == ']';
+        String content = spec.substring( 1, spec.length() - 1 ).trim();
+
+        int comma = content.indexOf( ',' );
+        if ( comma < 0 ) {
+            if ( !lowerInclusive || !upperInclusive || content.isEmpty() ) {
+                throw new IllegalArgumentException( "Invalid version range " + range );
+            }
+            ComparableVersion version = ComparableVersion.parse( content );
+            return new Restriction( version, true, version, true );
+        }
+
+        String lower = content.substring( 0, comma ).trim();
+        String upper = content.substring( comma + 1 ).trim();
+        return new Restriction( lower.isEmpty() ? null : ComparableVersion.parse( lower ), lowerInclusive,
+                                upper.isEmpty() ? null : ComparableVersion.parse( upper ), upperInclusive );
+    }
+
+    /**
+     * The versions of a GroupId:ArtifactId, with the non-SNAPSHOT ones also kept apart to resolve RELEASE
+     */
+    private static class Versions<T> {
+
+        private final NavigableMap<VersionKey, T> all = new ConcurrentSkipListMap<>();
+        private final NavigableMap<VersionKey, T> releases = new ConcurrentSkipListMap<>();
+    }
+
+    static class Restriction {
+
+        private final ComparableVersion lower;
+        private final boolean lowerInclusive;
+        private final ComparableVersion upper;
+        private final boolean upperInclusive;
+
+        Restriction( ComparableVersion lower, boolean lowerInclusive, ComparableVersion upper, boolean upperInclusive ) {
+            this.lower = lower;
+            this.lowerInclusive = lowerInclusive;
+            this.upper = upper;
+            this.upperInclusive = upperInclusive;
+        }
+
+        <V> NavigableMap<VersionKey, V> subMap( NavigableMap<VersionKey, V> versions ) {
+            // the bounds sort before or after all the versions equal to them, however they are written
+            VersionKey lowerKey = lower != null ? new VersionKey( lower, null, lowerInclusive ? -1 : 1 ) : null;
+            VersionKey upperKey = upper != null ? new VersionKey( upper, null, upperInclusive ? 1 : -1 ) : null;
+            if ( lowerKey != null && upperKey != null ) {
+                if ( lowerKey.compareTo( upperKey ) > 0 ) {
+                    return new ConcurrentSkipListMap<>();
+                }
+                return versions.subMap( lowerKey, false, upperKey, false );
+            }
+            if ( lowerKey != null ) {
+                return versions.tailMap( lowerKey, false );
+            }
+            if ( upperKey != null ) {
+                return versions.headMap( upperKey, false );
+            }
+            return versions;
+        }
+    }
+
+    /**
+     * A version as written, ordered by its maven ordering first, so that versions like 1.0 and 1.0.0, that are
+     * equal for maven, are kept apart. A key without value is a bound sorting before or after all of them.
+     */
+    static class VersionKey implements Comparable<VersionKey> {
+
+        private final ComparableVersion version;
+        private final String value;
+        private final int bound;
+
+        VersionKey( ComparableVersion version, String value, int bound ) {
+            this.version = version;
+            this.value = value;
+            this.bound = bound;
+        }
+
+        static VersionKey of( String version ) {
+            return new VersionKey( ComparableVersion.parse( version ), version, 0 );
+        }
+
+        @Override
+        public int compareTo( VersionKey other ) {
+            int result = version.compareTo( other.version );
+            if ( result != 0 ) {
+                return result;
+            }
+            if ( bound != 0 || other.bound != 0 ) {
+                return Integer.compare( bound, other.bound );
+            }
+            return value.compareTo( other.value );
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+}
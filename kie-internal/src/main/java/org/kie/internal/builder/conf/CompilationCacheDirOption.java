@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.builder.conf;
+
+import java.io.File;
+
+/**
+ * A class for the compilation cache directory configuration. I.e., for the directory
+ * where Drools stores the compilation output of each resource, keyed by a hash of its content
+ * and configuration, so that unchanged resources are not compiled again by the following builds.
+ * If this option is not set, all the resources are always compiled.
+ */
+public class CompilationCacheDirOption implements SingleValueKnowledgeBuilderOption {
+
+    private static final long serialVersionUID = 510l;
+
+    /**
+     * The property name for the drools compilation cache directory configuration
+     */
+    public static final String PROPERTY_NAME = "drools.compilationCache.dir";
+
+    /**
+     * directory reference
+     */
+    private final File dir;
+
+    /**
+     * Private constructor to enforce the use of the factory method
+     * @param dir directory to set
+     */
+    private CompilationCacheDirOption( File dir ) {
+        this.dir = dir;
+    }
+
+    /**
+     * This is a factory method for this CompilationCacheDirOption configuration.
+     *
+     * @param dir the directory where drools will cache the compiled resources
+     *
+     * @return the actual type safe compilation cache directory configuration.
+     */
+    public static CompilationCacheDirOption get( File dir ) {
+        return new CompilationCacheDirOption( dir );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getPropertyName() {
+        return PROPERTY_NAME;
+    }
+
+    /**
+     * Returns the directory where drools caches the compiled resources
+     *
+     * @return
+     */
+    public File getDirectory() {
+        return dir;
+    }
+
+    @Override
+    public String toString() {
+        return "CompilationCacheDirOption( directory="+((dir == null) ? "" : dir.toString())+" )";
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 + ((dir == null) ? 0 : dir.hashCode());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if ( this == obj ) { return true; }
+        if ( obj == null ) { return false; }
+        if ( getClass() != obj.getClass() ) { return false; }
+        CompilationCacheDirOption other = (CompilationCacheDirOption) obj;
+        return dir == null ? other.dir == null : dir.equals( other.dir );
+    }
+
+}
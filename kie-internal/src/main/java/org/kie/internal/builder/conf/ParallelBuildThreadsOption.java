@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.builder.conf;
+
+import org.kie.api.concurrent.KieExecutors;
+
+/**
+ * A class for the parallel build threads configuration.
+ *
+ * drools.parallelBuildThreads = &lt;1..n&gt;
+ *
+ * DEFAULT = the number of available processors
+ *
+ * The maximum number of KieBases of a KieModule compiled at the same time by KieBuilder.buildAll().
+ * KieBases are compiled after the KieBases they include. Setting this option to 1 compiles them sequentially.
+ */
+public class ParallelBuildThreadsOption implements SingleValueKnowledgeBuilderOption {
+
+    private static final long serialVersionUID = 510l;
+
+    /**
+     * The property name for the parallel build threads
+     */
+    public static final String PROPERTY_NAME = "drools.parallelBuildThreads";
+
+    public static final ParallelBuildThreadsOption DEFAULT = new ParallelBuildThreadsOption( KieExecutors.Pool.SIZE );
+
+    public static final ParallelBuildThreadsOption SEQUENTIAL = new ParallelBuildThreadsOption( 1 );
+
+    /**
+     * parallel build threads
+     */
+    private final int threads;
+
+    /**
+     * Private constructor to enforce the use of the factory method
+     * @param threads
+     */
+    private ParallelBuildThreadsOption( int threads ) {
+        this.threads = threads;
+    }
+
+    /**
+     * This is a factory method for this parallel build threads configuration.
+     *
+     * @param threads the maximum number of KieBases compiled at the same time
+     *
+     * @return the actual type safe parallel build threads configuration.
+     */
+    public static ParallelBuildThreadsOption get( int threads ) {
+        return threads <= 1 ? SEQUENTIAL : new ParallelBuildThreadsOption( threads );
+    }
+
+    /**
+     * Returns the option corresponding to the given property value, or the default one if it is null or empty
+     */
+    public static ParallelBuildThreadsOption determineParallelBuildThreads( String value ) {
+        if ( value == null || value.trim().isEmpty() ) {
+            return DEFAULT;
+        }
+        try {
+            return get( Integer.parseInt( value.trim() ) );
+        } catch ( NumberFormatException e ) {
+            throw new IllegalArgumentException( "Illegal value for " + PROPERTY_NAME + ": " + value );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getPropertyName() {
+        return PROPERTY_NAME;
+    }
+
+    /**
+     * Returns the maximum number of KieBases compiled at the same time
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 + threads;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if ( this == obj ) { return true; }
+        if ( obj == null ) { return false; }
+        if ( getClass() != obj.getClass() ) { return false; }
+        return threads == ((ParallelBuildThreadsOption) obj).threads;
+    }
+
+}
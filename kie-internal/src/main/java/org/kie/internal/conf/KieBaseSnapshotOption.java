@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.conf;
+
+import org.kie.api.conf.SingleValueKieBaseOption;
+
+/**
+ * An Enum for KieBaseSnapshot option.
+ *
+ * drools.kieBaseSnapshot = &lt;true|false&gt;
+ *
+ * DEFAULT = false
+ *
+ * When enabled the KieContainer stores each built KieBase in a snapshot file next to its KJAR
+ * and, at the following startups, loads it from there instead of compiling it again.
+ * @see org.kie.internal.builder.KieBaseSnapshot
+ */
+public enum KieBaseSnapshotOption implements SingleValueKieBaseOption {
+
+    YES(true),
+    NO(false);
+
+    /**
+     * The property name for the KieBase snapshot option
+     */
+    public static final String PROPERTY_NAME = "drools.kieBaseSnapshot";
+
+    private boolean value;
+
+    KieBaseSnapshotOption( final boolean value ) {
+        this.value = value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getPropertyName() {
+        return PROPERTY_NAME;
+    }
+
+    public boolean isKieBaseSnapshotEnabled() {
+        return this.value;
+    }
+
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.kie.api.command.Command;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+import org.kie.api.runtime.rule.QueryResults;
+
+/**
+ * Asynchronous facade allowing to safely use a {@link KieSession} from many threads without locking it.
+ * <p>
+ * All the operations are queued in a mailbox and executed one at a time, in submission order, by a single
+ * writer draining the mailbox on the given {@link Executor}, so the session is never accessed concurrently.
+ * The outcome of each operation is notified through the returned {@link CompletableFuture}.
+ * <p>
+ * Consecutive operations of the same kind found in the mailbox are coalesced: a sequence of inserts is
+ * performed with a single {@link KieSession#insertAll(Object[])} and a sequence of fireAllRules with a single
+ * {@link KieSession#fireAllRules()}, whose result completes all of them. If a coalesced insert fails, the
+ * inserts of the batch are performed again one at a time, so that each of them is completed with the handle
+ * returned by its own insert or with its own failure. Inserting again a fact that made it into the session
+ * before the failure doesn't insert it twice, but returns its existing handle.
+ */
+public class AsyncKieSession {
+
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    private final KieSession session;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+
+    private final Queue<Operation<?>> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private volatile boolean disposed;
+
+    /**
+     * Creates a facade for the given session, draining its mailbox on a dedicated thread
+     */
+    public AsyncKieSession( KieSession session ) {
+        this( session, Executors.newSingleThreadExecutor( r -> {
+            Thread t = new Thread( r, "kie-async-session" );
+            t.setDaemon( true );
+            return t;
+        } ), true );
+    }
+
+    /**
+     * Creates a facade for the given session, draining its mailbox on the given executor, that can be shared
+     * among many sessions. The executor is not shut down when the session is disposed.
+     */
+    public AsyncKieSession( KieSession session, Executor executor ) {
+        this( session, executor, false );
+    }
+
+    private AsyncKieSession( KieSession session, Executor executor, boolean owned ) {
+        this.session = session;
+        this.executor = executor;
+        this.ownedExecutor = owned ? (ExecutorService) executor : null;
+    }
+
+    public CompletableFuture<FactHandle> insert( Object object ) {
+        return submit( new Insert( object ) );
+    }
+
+    /**
+     * Fires the rules. Consecutive fireAllRules coalesced into a single run are all completed with the total
+     * number of rules fired by that run, not with a share of it.
+     */
+    public CompletableFuture<Integer> fireAllRules() {
+        return submit( new FireAllRules() );
+    }
+
+    public CompletableFuture<QueryResults> getQueryResults( String query, Object... arguments ) {
+        return submit( s -> s.getQueryResults( query, arguments ) );
+    }
+
+    public <T> CompletableFuture<T> execute( Command<T> command ) {
+        return submit( s -> s.execute( command ) );
+    }
+
+    public CompletableFuture<Void> update( FactHandle handle, Object object, String... modifiedProperties ) {
+        return submit( s -> {
+            s.update( handle, object, modifiedProperties );
+            return null;
+        } );
+    }
+
+    public CompletableFuture<Void> delete( FactHandle handle ) {
+        return submit( s -> {
+            s.delete( handle );
+            return null;
+        } );
+    }
+
+    /**
+     * Submits an arbitrary operation on the wrapped session. The session must not be used
+     * outside the given function, nor leaked by its result.
+     */
+    public <T> CompletableFuture<T> submit( Function<KieSession, T> function ) {
+        return submit( new Generic<>( function ) );
+    }
+
+    /**
+     * Disposes the wrapped session after all the operations already submitted have been executed.
+     * All the operations submitted afterwards fail with an IllegalStateException.
+     */
+    public synchronized CompletableFuture<Void> dispose() {
+        if ( disposed ) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally( new IllegalStateException( "Session already disposed" ) );
+            return future;
+        }
+        CompletableFuture<Void> future = submit( s -> {
+            s.dispose();
+            return null;
+        } );
+        disposed = true;
+        if ( ownedExecutor != null ) {
+            future.whenComplete( ( v, t ) -> ownedExecutor.shutdown() );
+        }
+        return future;
+    }
+
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    private <T> CompletableFuture<T> submit( Operation<T> operation ) {
+        // checking and enqueuing atomically guarantees that nothing is enqueued after the dispose
+        synchronized ( this ) {
+            if ( disposed ) {
+                operation.future.completeExceptionally( new IllegalStateException( "Session already disposed" ) );
+                return operation.future;
+            }
+            mailbox.add( operation );
+        }
+        schedule();
+        return operation.future;
+    }
+
+    private void schedule() {
+        if ( scheduled.compareAndSet( false, true ) ) {
+            try {
+                executor.execute( this::drain );
+            } catch ( RejectedExecutionException e ) {
+                scheduled.set( false );
+                Operation<?> operation;
+                while ( ( operation = mailbox.poll() ) != null ) {
+                    operation.future.completeExceptionally( e );
+                }
+            }
+        }
+    }
+
+    private void drain() {
+        int processed = 0;
+        Operation<?> operation;
+        // the mailbox is drained in chunks in order to be fair with the other tasks of a shared executor
+        while ( processed < MAX_BATCH_SIZE && ( operation = mailbox.poll() ) != null ) {
+            if ( operation instanceof Insert ) {
+                processed += insertBatch( (Insert) operation );
+            } else if ( operation instanceof FireAllRules ) {
+                processed += fireBatch( (FireAllRules) operation );
+            } else {
+                operation.run( session );
+                processed++;
+            }
+        }
+        scheduled.set( false );
+        if ( !mailbox.isEmpty() ) {
+            schedule();
+        }
+    }
+
+    private int insertBatch( Insert first ) {
+        List<Insert> batch = new ArrayList<>();
+        batch.add( first );
+        // this is the only consumer of the mailbox, so what is peeked is also what is polled
+        while ( batch.size() < MAX_BATCH_SIZE && mailbox.peek() instanceof Insert ) {
+            batch.add( (Insert) mailbox.poll() );
+        }
+        if ( batch.size() == 1 ) {
+            first.run( session );
+            return 1;
+        }
+
+        Object[] objects = new Object[batch.size()];
+        for ( int i = 0; i < objects.length; i++ ) {
+            objects[i] = batch.get( i ).object;
+        }
+        try {
+            FactHandle[] handles = session.insertAll( objects );
+            for ( int i = 0; i < handles.length; i++ ) {
+                batch.get( i ).future.complete( handles[i] );
+            }
+        } catch ( Throwable t ) {
+            // insertAll may have inserted some of the facts before failing: inserting them again returns their
+            // handles, while the following ones are inserted as if they had never been coalesced
+            batch.forEach( insert -> insert.run( session ) );
+        }
+        return batch.size();
+    }
+
+    private int fireBatch( FireAllRules first ) {
+        List<FireAllRules> batch = new ArrayList<>();
+        batch.add( first );
+        while ( mailbox.peek() instanceof FireAllRules ) {
+            batch.add( (FireAllRules) mailbox.poll() );
+        }
+        try {
+            Integer fired = session.fireAllRules();
+            batch.forEach( fire -> fire.future.complete( fired ) );
+        } catch ( Throwable t ) {
+            batch.forEach( fire -> fire.future.completeExceptionally( t ) );
+        }
+        return batch.size();
+    }
+
+    private abstract static class Operation<T> {
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        abstract T apply( KieSession session );
+
+        void run( KieSession session ) {
+            try {
+                future.complete( apply( session ) );
+            } catch ( Throwable t ) {
+                future.completeExceptionally( t );
+            }
+        }
+    }
+
+    private static class Insert extends Operation<FactHandle> {
+
+        private final Object object;
+
+        private Insert( Object object ) {
+            this.object = object;
+        }
+
+        @Override
+        FactHandle apply( KieSession session ) {
+            return session.insert( object );
+        }
+    }
+
+    private static class FireAllRules extends Operation<Integer> {
+
+        @Override
+        Integer apply( KieSession session ) {
+            return session.fireAllRules();
+        }
+    }
+
+    private static class Generic<T> extends Operation<T> {
+
+        private final Function<KieSession, T> function;
+
+        private Generic( Function<KieSession, T> function ) {
+            this.function = function;
+        }
+
+        @Override
+        T apply( KieSession session ) {
+            return function.apply( session );
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.runtime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.kie.api.runtime.rule.FactHandle;
+import org.kie.api.runtime.rule.Row;
+import org.kie.api.runtime.rule.ViewChangedEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ViewChangedEventListener} collecting the changes of a LiveQuery and delivering them in batches,
+ * as the net change set accumulated since the previous delivery.
+ * <p>
+ * The changes of the same row are coalesced: a row inserted and then deleted within the same batch is not reported
+ * at all, a row inserted and then updated is reported as inserted, and a row deleted and then inserted again is
+ * reported as updated. Rows are identified by the FactHandles bound to the given identifiers.
+ * <p>
+ * The Rows notified by the engine are only valid during the notification, so the values and the FactHandles bound
+ * to the given identifiers are copied when a change is received, and the Rows of the delivered change sets expose
+ * only those identifiers.
+ * <p>
+ * A batch is delivered when {@link #flush()} is invoked, typically after each <code>fireAllRules()</code>, and/or
+ * periodically when a flush interval is set. The delivery happens on the flushing thread unless a delivery executor
+ * is set, allowing to move the work of the listener out of the engine thread. The change sets are handed over one at a
+ * time, in the order they have been collected, so without a delivery executor a flush waits for the completion of
+ * a concurrent delivery, e.g. a periodic one.
+ */
+public class BatchingViewChangedEventListener implements ViewChangedEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger( BatchingViewChangedEventListener.class );
+
+    /**
+     * Receives the net changes of a LiveQuery
+     */
+    public interface ChangeSetListener {
+
+        void viewChanged( ChangeSet changeSet );
+    }
+
+    public static class ChangeSet {
+
+        private final List<Row> inserted;
+        private final List<Row> updated;
+        private final List<Row> deleted;
+
+        ChangeSet( List<Row> inserted, List<Row> updated, List<Row> deleted ) {
+            this.inserted = Collections.unmodifiableList( inserted );
+            this.updated = Collections.unmodifiableList( updated );
+            this.deleted = Collections.unmodifiableList( deleted );
+        }
+
+        public List<Row> getInserted() {
+            return inserted;
+        }
+
+        public List<Row> getUpdated() {
+            return updated;
+        }
+
+        public List<Row> getDeleted() {
+            return deleted;
+        }
+
+        public boolean isEmpty() {
+            return inserted.isEmpty() && updated.isEmpty() && deleted.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "ChangeSet[inserted=" + inserted.size() + ", updated=" + updated.size() + ", deleted=" + deleted.size() + "]";
+        }
+    }
+
+    private enum ChangeType { INSERTED, UPDATED, DELETED }
+
+    private static class Change {
+
+        private final ChangeType type;
+        private final Row row;
+
+        private Change( ChangeType type, Row row ) {
+            this.type = type;
+            this.row = row;
+        }
+    }
+
+    private final ChangeSetListener listener;
+    private final String[] identifiers;
+
+    private Map<Object, Change> changes = new LinkedHashMap<>();
+
+    /* held while taking a batch and handing it over, so that the batches are delivered one at a time and in order */
+    private final Object deliveryLock = new Object();
+
+    private Executor deliveryExecutor;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> flushTask;
+
+    /**
+     * @param identifiers the identifiers of the query, whose FactHandles identify its rows
+     * @throws IllegalArgumentException if no identifier is given
+     */
+    public BatchingViewChangedEventListener( ChangeSetListener listener, String... identifiers ) {
+        if ( identifiers.length == 0 ) {
+            throw new IllegalArgumentException( "At least an identifier is needed to identify and copy the rows" );
+        }
+        this.listener = listener;
+        this.identifiers = identifiers;
+    }
+
+    /**
+     * Sets the executor used to deliver the change sets to the listener. It should execute its tasks in
+     * submission order, like a single thread executor, otherwise the change sets could be delivered out of order.
+     */
+    public synchronized BatchingViewChangedEventListener setDeliveryExecutor( Executor deliveryExecutor ) {
+        this.deliveryExecutor = deliveryExecutor;
+        return this;
+    }
+
+    /**
+     * Periodically delivers the changes collected in the given time window, in milliseconds,
+     * replacing the interval previously set, if any
+     */
+    public synchronized BatchingViewChangedEventListener setFlushInterval( long flushInterval ) {
+        if ( scheduler == null ) {
+            scheduler = Executors.newSingleThreadScheduledExecutor( r -> {
+                Thread t = new Thread( r, "kie-live-query-flusher" );
+                t.setDaemon( true );
+                return t;
+            } );
+        }
+        if ( flushTask != null ) {
+            flushTask.cancel( false );
+        }
+        flushTask = scheduler.scheduleWithFixedDelay( this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS );
+        return this;
+    }
+
+    @Override
+    public void rowInserted( Row row ) {
+        // the rows are copied during the notification, while they are still valid
+        merge( ChangeType.INSERTED, new RowSnapshot( row, identifiers ) );
+    }
+
+    @Override
+    public void rowDeleted( Row row ) {
+        merge( ChangeType.DELETED, new RowSnapshot( row, identifiers ) );
+    }
+
+    @Override
+    public void rowUpdated( Row row ) {
+        merge( ChangeType.UPDATED, new RowSnapshot( row, identifiers ) );
+    }
+
+    /**
+     * Delivers the net changes collected since the last flush, if any
+     */
+    public void flush() {
+        synchronized ( deliveryLock ) {
+            Map<Object, Change> batch;
+            Executor executor;
+            synchronized ( this ) {
+                if ( changes.isEmpty() ) {
+                    return;
+                }
+                batch = changes;
+                changes = new LinkedHashMap<>();
+                executor = deliveryExecutor;
+            }
+
+            ChangeSet changeSet = toChangeSet( batch );
+            if ( executor != null ) {
+                executor.execute( () -> deliver( changeSet ) );
+            } else {
+                deliver( changeSet );
+            }
+        }
+    }
+
+    /**
+     * Delivers the pending changes and stops the periodic flush, if any
+     */
+    public void close() {
+        synchronized ( this ) {
+            if ( scheduler != null ) {
+                scheduler.shutdownNow();
+                scheduler = null;
+                flushTask = null;
+            }
+        }
+        flush();
+    }
+
+    private synchronized void merge( ChangeType type, RowSnapshot row ) {
+        Object key = row.getKey();
+        Change previous = changes.get( key );
+        ChangeType merged = previous == null ? type : merge( previous.type, type );
+        if ( merged == null ) {
+            changes.remove( key );
+        } else {
+            changes.put( key, new Change( merged, row ) );
+        }
+    }
+
+    private static ChangeType merge( ChangeType previous, ChangeType current ) {
+        switch ( previous ) {
+            case INSERTED:
+                // inserted and deleted in the same batch: nothing to report
+                return current == ChangeType.DELETED ? null : ChangeType.INSERTED;
+            case DELETED:
+                return current == ChangeType.DELETED ? ChangeType.DELETED : ChangeType.UPDATED;
+            default:
+                return current == ChangeType.DELETED ? ChangeType.DELETED : ChangeType.UPDATED;
+        }
+    }
+
+
+    private static ChangeSet toChangeSet( Map<Object, Change> batch ) {
+        List<Row> inserted = new ArrayList<>();
+        List<Row> updated = new ArrayList<>();
+        List<Row> deleted = new ArrayList<>();
+        for ( Change change : batch.values() ) {
+            switch ( change.type ) {
+                case INSERTED:
+                    inserted.add( change.row );
+                    break;
+                case UPDATED:
+                    updated.add( change.row );
+                    break;
+                default:
+                    deleted.add( change.row );
+            }
+        }
+        return new ChangeSet( inserted, updated, deleted );
+    }
+
+    private static class RowSnapshot implements Row {
+
+        private final Map<String, Object> values = new HashMap<>();
+        private final Map<String, FactHandle> factHandles = new LinkedHashMap<>();
+
+        private RowSnapshot( Row row, String[] identifiers ) {
+            for ( String identifier : identifiers ) {
+                values.put( identifier, row.get( identifier ) );
+                factHandles.put( identifier, row.getFactHandle( identifier ) );
+            }
+        }
+
+        private Object getKey() {
+            return new ArrayList<>( factHandles.values() );
+        }
+
+        @Override
+        public Object get( String identifier ) {
+            checkIdentifier( identifier );
+            return values.get( identifier );
+        }
+
+        @Override
+        public FactHandle getFactHandle( String identifier ) {
+            checkIdentifier( identifier );
+            return factHandles.get( identifier );
+        }
+
+        private void checkIdentifier( String identifier ) {
+            if ( !factHandles.containsKey( identifier ) ) {
+                throw new IllegalArgumentException( "Identifier " + identifier + " has not been copied from the row" );
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Row" + values;
+        }
+    }
+
+    private void deliver( ChangeSet changeSet ) {
+        try {
+            listener.viewChanged( changeSet );
+        } catch ( RuntimeException e ) {
+            log.error( "Error delivering " + changeSet, e );
+        }
+    }
+}
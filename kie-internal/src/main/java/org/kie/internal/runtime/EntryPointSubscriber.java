@@ -0,0 +1,313 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.kie.api.event.rule.BeforeMatchFiredEvent;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
+import org.kie.api.event.rule.MatchCancelledEvent;
+import org.kie.api.event.rule.MatchCreatedEvent;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.EntryPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Subscriber inserting the facts published by a source into an {@link EntryPoint} with flow control, typically
+ * while the session is running <code>fireUntilHalt()</code>.
+ * <p>
+ * The facts are requested in batches of a configurable size and inserted in bulk through
+ * {@link EntryPoint#insertAll(Object[])}. The next batch is requested only once the previous one has been inserted
+ * and the configured backpressure condition, e.g. {@link #agendaSizeAbove(KieSession, int)}, no longer reports the
+ * session as overloaded, so the source is never allowed to run ahead of the engine. The facts of a batch that is
+ * only partially delivered are inserted anyway after the flush interval.
+ * <p>
+ * The subscriber follows the same protocol of <code>java.util.concurrent.Flow.Subscriber</code>, which isn't
+ * available on Java 8: a reactive streams publisher can be connected by forwarding the 4 signals and by wrapping
+ * its subscription into a {@link Subscription}.
+ */
+public class EntryPointSubscriber<T> {
+
+    private static final Logger log = LoggerFactory.getLogger( EntryPointSubscriber.class );
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final long DEFAULT_FLUSH_INTERVAL = 10;
+    public static final long DEFAULT_RETRY_DELAY = 10;
+
+    /**
+     * The link between the source and this subscriber, equivalent to <code>java.util.concurrent.Flow.Subscription</code>
+     */
+    public interface Subscription {
+
+        void request( long n );
+
+        void cancel();
+    }
+
+    private final EntryPoint entryPoint;
+    private final int batchSize;
+
+    private BooleanSupplier overloaded = () -> false;
+    private long flushInterval = DEFAULT_FLUSH_INTERVAL;
+    private long retryDelay = DEFAULT_RETRY_DELAY;
+
+    private final List<Object> buffer = new ArrayList<>();
+    private final AtomicLong insertedCount = new AtomicLong();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private Subscription subscription;
+    private ScheduledExecutorService scheduler;
+    private long demand;
+
+    public EntryPointSubscriber( EntryPoint entryPoint ) {
+        this( entryPoint, DEFAULT_BATCH_SIZE );
+    }
+
+    public EntryPointSubscriber( EntryPoint entryPoint, int batchSize ) {
+        if ( batchSize <= 0 ) {
+            throw new IllegalArgumentException( "Batch size must be positive" );
+        }
+        this.entryPoint = entryPoint;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the condition checked before requesting each batch: while it returns true no more facts are requested
+     * and the condition is checked again after the retry delay. If the condition is {@link AutoCloseable}, like the
+     * one returned by {@link #agendaSizeAbove(KieSession, int)}, it is closed when this subscriber terminates.
+     */
+    public EntryPointSubscriber<T> setBackpressure( BooleanSupplier overloaded, long retryDelay ) {
+        this.overloaded = overloaded;
+        this.retryDelay = retryDelay;
+        return this;
+    }
+
+    /**
+     * Sets the maximum time in milliseconds the facts of a partially delivered batch are kept before being inserted
+     */
+    public EntryPointSubscriber<T> setFlushInterval( long flushInterval ) {
+        this.flushInterval = flushInterval;
+        return this;
+    }
+
+    /**
+     * Returns a backpressure condition reporting the given session as overloaded while its agenda contains more
+     * than the given number of matches waiting to be fired. The condition tracks the agenda through a listener
+     * registered on the session, which is removed when the condition is closed.
+     */
+    public static AgendaSizeCondition agendaSizeAbove( KieSession session, int maxMatches ) {
+        return new AgendaSizeCondition( session, maxMatches );
+    }
+
+    /**
+     * A backpressure condition on the number of matches waiting to be fired in the agenda of a session
+     * @see #agendaSizeAbove(KieSession, int)
+     */
+    public static class AgendaSizeCondition extends DefaultAgendaEventListener implements BooleanSupplier, AutoCloseable {
+
+        private final KieSession session;
+        private final int maxMatches;
+
+        private final AtomicInteger agendaSize = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private AgendaSizeCondition( KieSession session, int maxMatches ) {
+            this.session = session;
+            this.maxMatches = maxMatches;
+            session.addEventListener( this );
+        }
+
+        @Override
+        public boolean getAsBoolean() {
+            return agendaSize.get() > maxMatches;
+        }
+
+        /**
+         * Removes the listener tracking the agenda from the session
+         */
+        @Override
+        public void close() {
+            if ( closed.compareAndSet( false, true ) ) {
+                session.removeEventListener( this );
+            }
+        }
+
+        @Override
+        public void matchCreated( MatchCreatedEvent event ) {
+            agendaSize.incrementAndGet();
+        }
+
+        @Override
+        public void matchCancelled( MatchCancelledEvent event ) {
+            agendaSize.decrementAndGet();
+        }
+
+        @Override
+        public void beforeMatchFired( BeforeMatchFiredEvent event ) {
+            agendaSize.decrementAndGet();
+        }
+    }
+
+    public void onSubscribe( Subscription subscription ) {
+        synchronized ( this ) {
+            if ( this.subscription != null ) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+            this.scheduler = Executors.newSingleThreadScheduledExecutor( r -> {
+                Thread t = new Thread( r, "kie-entry-point-subscriber-" + entryPoint.getEntryPointId() );
+                t.setDaemon( true );
+                return t;
+            } );
+            scheduler.scheduleWithFixedDelay( this::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS );
+        }
+        requestBatch();
+    }
+
+    public void onNext( T item ) {
+        boolean batchCompleted;
+        synchronized ( this ) {
+            buffer.add( item );
+            batchCompleted = --demand <= 0;
+        }
+        if ( batchCompleted && flushQuietly() ) {
+            requestBatch();
+        }
+    }
+
+    public void onError( Throwable throwable ) {
+        if ( flushQuietly() ) {
+            terminate( throwable );
+        }
+    }
+
+    public void onComplete() {
+        if ( flushQuietly() ) {
+            terminate( null );
+        }
+    }
+
+    /**
+     * Stops receiving facts from the source, inserting the ones already received
+     */
+    public void cancel() {
+        Subscription s;
+        synchronized ( this ) {
+            s = subscription;
+        }
+        if ( s != null ) {
+            s.cancel();
+        }
+        if ( flushQuietly() ) {
+            terminate( null );
+        }
+    }
+
+    /**
+     * Returns a future completed when the source completes or fails, or when this subscriber is cancelled
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    public long getInsertedCount() {
+        return insertedCount.get();
+    }
+
+    private void requestBatch() {
+        if ( completion.isDone() ) {
+            return;
+        }
+        boolean isOverloaded;
+        try {
+            isOverloaded = overloaded.getAsBoolean();
+        } catch ( RuntimeException e ) {
+            log.error( "Error checking the backpressure condition of entry point " + entryPoint.getEntryPointId(), e );
+            isOverloaded = false;
+        }
+        Subscription s;
+        synchronized ( this ) {
+            // this subscriber may have been terminated while checking the backpressure condition
+            if ( completion.isDone() ) {
+                return;
+            }
+            if ( isOverloaded ) {
+                try {
+                    scheduler.schedule( this::requestBatch, retryDelay, TimeUnit.MILLISECONDS );
+                } catch ( RejectedExecutionException e ) {
+                    log.debug( "Subscriber of entry point {} already terminated", entryPoint.getEntryPointId() );
+                }
+                return;
+            }
+            demand += batchSize;
+            s = subscription;
+        }
+        s.request( batchSize );
+    }
+
+    private synchronized boolean flushQuietly() {
+        if ( completion.isDone() ) {
+            return false;
+        }
+        if ( buffer.isEmpty() ) {
+            return true;
+        }
+        Object[] facts = buffer.toArray();
+        buffer.clear();
+        try {
+            entryPoint.insertAll( facts );
+            insertedCount.addAndGet( facts.length );
+            return true;
+        } catch ( RuntimeException e ) {
+            log.error( "Error inserting facts into entry point " + entryPoint.getEntryPointId(), e );
+            subscription.cancel();
+            terminate( e );
+            return false;
+        }
+    }
+
+    private synchronized void terminate( Throwable throwable ) {
+        if ( scheduler != null ) {
+            scheduler.shutdownNow();
+        }
+        if ( overloaded instanceof AutoCloseable ) {
+            try {
+                ( (AutoCloseable) overloaded ).close();
+            } catch ( Exception e ) {
+                log.error( "Error closing the backpressure condition of entry point " + entryPoint.getEntryPointId(), e );
+            }
+        }
+        if ( throwable != null ) {
+            completion.completeExceptionally( throwable );
+        } else {
+            completion.complete( null );
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.runtime;
+
+import org.kie.api.runtime.Environment;
+
+/**
+ * {@link Environment} storing the values of the entries known in advance, e.g. the ones of EnvironmentName,
+ * in an array indexed by slot, so that they can be read with {@link #get(int)} without any lookup by name.
+ * Entries not part of the layout can still be set and read by name.
+ * @see SlotGlobals
+ */
+public class SlotEnvironment implements Environment {
+
+    private final SlotValues values;
+    private volatile Environment delegate;
+
+    public SlotEnvironment( SlotLayout layout ) {
+        this.values = new SlotValues( layout );
+    }
+
+    public SlotLayout getLayout() {
+        return values.getLayout();
+    }
+
+    @Override
+    public int getSlot( String identifier ) {
+        return values.getLayout().getSlot( identifier );
+    }
+
+    @Override
+    public Object get( int slot ) {
+        Object value = values.get( slot );
+        if ( value == null ) {
+            Environment d = delegate;
+            return d != null ? d.get( values.getLayout().getName( slot ) ) : null;
+        }
+        return value;
+    }
+
+    @Override
+    public Object get( String identifier ) {
+        Object value = values.get( identifier );
+        if ( value == null ) {
+            Environment d = delegate;
+            return d != null ? d.get( identifier ) : null;
+        }
+        return value;
+    }
+
+    @Override
+    public void set( String identifier, Object object ) {
+        values.set( identifier, object );
+    }
+
+    /**
+     * Sets the value of the entry assigned to the given slot
+     */
+    public void set( int slot, Object object ) {
+        values.set( slot, object );
+    }
+
+    @Override
+    public void setDelegate( Environment delegate ) {
+        this.delegate = delegate;
+    }
+}
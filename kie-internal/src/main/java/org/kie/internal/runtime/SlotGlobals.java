@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.runtime;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.kie.api.runtime.Globals;
+
+/**
+ * {@link Globals} storing the values of the globals declared in a KieBase in an array, indexed by the slots assigned
+ * to them at build time. Compiled consequences can read a global with {@link #get(int)}, without any lookup by name,
+ * while the name based methods remain available as a view over the same array. Globals not declared in the layout
+ * can still be set and read by name.
+ */
+public class SlotGlobals implements Globals {
+
+    private final SlotValues values;
+    private volatile Globals delegate;
+
+    public SlotGlobals( SlotLayout layout ) {
+        this.values = new SlotValues( layout );
+    }
+
+    public SlotLayout getLayout() {
+        return values.getLayout();
+    }
+
+    @Override
+    public int getSlot( String identifier ) {
+        return values.getLayout().getSlot( identifier );
+    }
+
+    @Override
+    public Object get( int slot ) {
+        Object value = values.get( slot );
+        if ( value == null ) {
+            Globals d = delegate;
+            return d != null ? d.get( values.getLayout().getName( slot ) ) : null;
+        }
+        return value;
+    }
+
+    @Override
+    public Object get( String identifier ) {
+        Object value = values.get( identifier );
+        if ( value == null ) {
+            Globals d = delegate;
+            return d != null ? d.get( identifier ) : null;
+        }
+        return value;
+    }
+
+    @Override
+    public void set( String identifier, Object value ) {
+        values.set( identifier, value );
+    }
+
+    /**
+     * Sets the value of the global assigned to the given slot
+     */
+    public void set( int slot, Object value ) {
+        values.set( slot, value );
+    }
+
+    @Override
+    public void setDelegate( Globals delegate ) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Collection<String> getGlobalKeys() {
+        Set<String> keys = new LinkedHashSet<>( values.getNames() );
+        Globals d = delegate;
+        if ( d != null ) {
+            keys.addAll( d.getGlobalKeys() );
+        }
+        return keys;
+    }
+}
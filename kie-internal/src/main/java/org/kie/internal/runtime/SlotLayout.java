@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.runtime;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The immutable assignment of integer slots to a set of names, e.g. the globals declared in a KieBase, computed once
+ * at build time and shared by all the sessions. Compiled code can resolve the slot of a name once and then read
+ * the value directly from the slots array of each session.
+ * @see SlotGlobals
+ * @see SlotEnvironment
+ */
+public class SlotLayout {
+
+    public static final SlotLayout EMPTY = new SlotLayout();
+
+    private final String[] names;
+    private final Map<String, Integer> slots;
+
+    public SlotLayout( String... names ) {
+        this.names = names.clone();
+        this.slots = new HashMap<>( names.length * 2 );
+        for ( int i = 0; i < names.length; i++ ) {
+            if ( slots.put( names[i], i ) != null ) {
+                throw new IllegalArgumentException( "Duplicated name " + names[i] );
+            }
+        }
+    }
+
+    /**
+     * Returns the slot of the given name, or -1 if it isn't part of this layout
+     */
+    public int getSlot( String name ) {
+        Integer slot = slots.get( name );
+        return slot != null ? slot : -1;
+    }
+
+    public String getName( int slot ) {
+        return names[slot];
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public List<String> getNames() {
+        return Collections.unmodifiableList( Arrays.asList( names ) );
+    }
+
+    @Override
+    public String toString() {
+        return "SlotLayout" + Arrays.toString( names );
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.runtime;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The values of the names of a {@link SlotLayout}, stored in an array indexed by slot, plus the values of the names
+ * not known in advance, stored in a map only when there are any.
+ * <p>
+ * Values can be set while other threads are reading them, e.g. a global set by the application while a session is
+ * firing, so each slot is read and written with volatile semantics and the other values are kept in a concurrent map.
+ * Setting a value to null removes it.
+ */
+class SlotValues {
+
+    private final SlotLayout layout;
+    private final AtomicReferenceArray<Object> values;
+    private volatile Map<String, Object> others;
+
+    SlotValues( SlotLayout layout ) {
+        this.layout = layout;
+        this.values = new AtomicReferenceArray<>( layout.size() );
+    }
+
+    SlotLayout getLayout() {
+        return layout;
+    }
+
+    Object get( int slot ) {
+        return values.get( slot );
+    }
+
+    Object get( String name ) {
+        int slot = layout.getSlot( name );
+        if ( slot >= 0 ) {
+            return values.get( slot );
+        }
+        Map<String, Object> map = others;
+        return map != null ? map.get( name ) : null;
+    }
+
+    void set( int slot, Object value ) {
+        values.set( slot, value );
+    }
+
+    void set( String name, Object value ) {
+        int slot = layout.getSlot( name );
+        if ( slot >= 0 ) {
+            values.set( slot, value );
+        } else if ( value != null ) {
+            getOthers().put( name, value );
+        } else {
+            Map<String, Object> map = others;
+            if ( map != null ) {
+                map.remove( name );
+            }
+        }
+    }
+
+    Collection<String> getNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for ( int i = 0; i < values.length(); i++ ) {
+            if ( values.get( i ) != null ) {
+                names.add( layout.getName( i ) );
+            }
+        }
+        Map<String, Object> map = others;
+        if ( map != null ) {
+            names.addAll( map.keySet() );
+        }
+        return names;
+    }
+
+    private Map<String, Object> getOthers() {
+        Map<String, Object> map = others;
+        if ( map == null ) {
+            synchronized ( this ) {
+                map = others;
+                if ( map == null ) {
+                    map = new ConcurrentHashMap<>();
+                    others = map;
+                }
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.kie.api.command.Command;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.StatelessKieSession;
+
+/**
+ * Executes independent batches of facts or commands in parallel on a fixed number of worker threads.
+ * <p>
+ * Each worker lazily creates its own {@link StatelessKieSession} and reuses it for all the batches it executes,
+ * so the number of sessions, and of the internal resources they cache, is bounded by the number of workers.
+ * Results can be collected either in submission order, through {@link #executeCommands(List)}, or as soon as
+ * each batch completes, through the futures returned by {@link #submitAll(Iterable)}.
+ */
+public class StatelessKieSessionExecutor {
+
+    private static final AtomicInteger executorCounter = new AtomicInteger();
+
+    private final ExecutorService workers;
+    private final ThreadLocal<StatelessKieSession> sessions;
+
+    /**
+     * Creates an executor using the StatelessKieSession with the given name of the given KieContainer,
+     * or the default one if the name is null
+     */
+    public StatelessKieSessionExecutor( KieContainer kieContainer, String kSessionName, int threads ) {
+        this( () -> kSessionName == null ? kieContainer.newStatelessKieSession() : kieContainer.newStatelessKieSession( kSessionName ),
+              threads );
+    }
+
+    /**
+     * Creates an executor using the sessions provided by the given factory, invoked once per worker
+     */
+    public StatelessKieSessionExecutor( Supplier<StatelessKieSession> sessionFactory, int threads ) {
+        if ( threads <= 0 ) {
+            throw new IllegalArgumentException( "The number of threads must be positive" );
+        }
+        this.sessions = ThreadLocal.withInitial( sessionFactory );
+        String prefix = "kie-stateless-executor-" + executorCounter.incrementAndGet() + "-";
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool( threads, r -> {
+            Thread t = new Thread( r, prefix + threadCounter.incrementAndGet() );
+            t.setDaemon( true );
+            return t;
+        } );
+    }
+
+    /**
+     * Executes the given batches of facts, each one with a single {@link StatelessKieSession#execute(Iterable)},
+     * and waits for all of them to complete
+     */
+    public void executeFactBatches( Iterable<? extends Iterable<?>> factBatches ) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for ( Iterable<?> facts : factBatches ) {
+            futures.add( CompletableFuture.runAsync( () -> sessions.get().execute( facts ), workers ) );
+        }
+        join( futures );
+    }
+
+    /**
+     * Executes the given commands and waits for all of them to complete
+     * @return the results of the commands, in the same order as the commands
+     */
+    public <T> List<T> executeCommands( List<? extends Command<T>> commands ) {
+        return join( submitAll( commands ) );
+    }
+
+    /**
+     * Submits the given commands for execution
+     * @return the futures of the results of the commands, in the same order as the commands
+     */
+    public <T> List<CompletableFuture<T>> submitAll( Iterable<? extends Command<T>> commands ) {
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for ( Command<T> command : commands ) {
+            futures.add( CompletableFuture.supplyAsync( () -> sessions.get().execute( command ), workers ) );
+        }
+        return futures;
+    }
+
+    /**
+     * Stops the worker threads once the submitted batches have been executed
+     */
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private static <T> List<T> join( List<CompletableFuture<T>> futures ) {
+        List<T> results = new ArrayList<>( futures.size() );
+        try {
+            for ( CompletableFuture<T> future : futures ) {
+                results.add( future.join() );
+            }
+        } catch ( CompletionException e ) {
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+}
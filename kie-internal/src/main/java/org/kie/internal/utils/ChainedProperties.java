@@ -26,9 +26,14 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,7 +48,7 @@ import org.slf4j.LoggerFactory;
  * To improve performance in frequent session creation cases, chained properties can be cached by it's conf file name
  * and requesting classloader. To take advantage of the case it must be enabled via system property:<br/>
  * <code>org.kie.property.cache.enabled</code> that needs to be set to <code>true</code>
- * Cache entries are by default limited to 100 to reduce memory consumption but can be fine tuned by system property:<br/>
+ * Cache entries, one per classloader, are by default limited to 100 to reduce memory consumption but can be fine tuned by system property:<br/>
  * <code>org.kie.property.cache.size</code> that needs to be set to valid integer value
  */
 public class ChainedProperties
@@ -52,8 +57,17 @@ public class ChainedProperties
 
     protected static transient Logger logger = LoggerFactory.getLogger(ChainedProperties.class);
 
+    private static final boolean CACHE_ENABLED = Boolean.parseBoolean( System.getProperty( "org.kie.property.cache.enabled", "false" ) );
+    private static final int CACHE_SIZE = Integer.parseInt( System.getProperty( "org.kie.property.cache.size", "100" ) );
+
+    /* ClassLoaders are weakly referenced, so a cached entry doesn't prevent them from being garbage collected */
+    private static final Map<ClassLoader, Map<String, ClasspathProperties>> cache =
+            Collections.synchronizedMap( new WeakHashMap<ClassLoader, Map<String, ClasspathProperties>>() );
+
+    /* Explicitly added properties, including the System ones, that are always looked up first */
     private List<Properties> props = new ArrayList<Properties>();
-    private List<Properties> defaultProps = new ArrayList<Properties>();
+    /* Flattened properties read from the META-INF/ of the classLoader, possibly shared through the cache */
+    private ClasspathProperties classpathProps = ClasspathProperties.EMPTY;
 
     public ChainedProperties() { }
 
@@ -65,41 +79,77 @@ public class ChainedProperties
         return new ChainedProperties( confFileName, classLoader );
     }
 
+    /**
+     * Discards the cached properties, so that the META-INF/ conf files will be read again
+     */
+    public static void clearCache() {
+        cache.clear();
+    }
+
     public ChainedProperties clone() {
         ChainedProperties clone = new ChainedProperties();
         clone.props.addAll( this.props );
-        clone.defaultProps.addAll( this.defaultProps );
+        clone.classpathProps = this.classpathProps;
         return clone;
     }
 
     private ChainedProperties(String confFileName, ClassLoader classLoader) {
+        this( confFileName, classLoader, CACHE_ENABLED );
+    }
+
+    ChainedProperties(String confFileName, ClassLoader classLoader, boolean cacheEnabled) {
         addProperties( System.getProperties() );
+        this.classpathProps = cacheEnabled ?
+                              getCachedClasspathProperties( confFileName, classLoader ) :
+                              loadClasspathProperties( confFileName, classLoader );
+    }
+
+    private static ClasspathProperties getCachedClasspathProperties(String confFileName, ClassLoader classLoader) {
+        Map<String, ClasspathProperties> confs = cache.get( classLoader );
+        if ( confs == null ) {
+            synchronized ( cache ) {
+                if ( cache.size() >= CACHE_SIZE ) {
+                    cache.clear();
+                }
+                confs = cache.computeIfAbsent( classLoader, cl -> new ConcurrentHashMap<String, ClasspathProperties>() );
+            }
+        }
+        return confs.computeIfAbsent( confFileName, name -> loadClasspathProperties( name, classLoader ) );
+    }
 
-        loadProperties( "META-INF/kie." + confFileName, classLoader, this.props );
-        loadProperties( "META-INF/kie.default." + confFileName, classLoader, this.defaultProps);
+    private static ClasspathProperties loadClasspathProperties(String confFileName, ClassLoader classLoader) {
+        List<Properties> props = new ArrayList<Properties>();
+        List<Properties> defaultProps = new ArrayList<Properties>();
+
+        loadProperties( "META-INF/kie." + confFileName, classLoader, props );
+        loadProperties( "META-INF/kie.default." + confFileName, classLoader, defaultProps);
 
         // this happens only in OSGi: for some reason doing
         // ClassLoader.getResources() doesn't work but doing
         // Class.getResourse() does
-        if (this.defaultProps.isEmpty()) {
+        if (defaultProps.isEmpty()) {
             try {
                 Class<?> c = Class.forName( "org.drools.core.WorkingMemory", false, classLoader);
                 URL confURL = c.getResource("/META-INF/kie.default." + confFileName);
-                loadProperties(confURL, this.defaultProps);
+                loadProperties(confURL, defaultProps);
             } catch (ClassNotFoundException e) { }
         }
+
+        return new ClasspathProperties( props, defaultProps );
     }
 
     @SuppressWarnings("unchecked")
     public void readExternal(ObjectInput in) throws IOException,
                                             ClassNotFoundException {
         props = (List<Properties>) in.readObject();
-        defaultProps = (List<Properties>) in.readObject();
+        classpathProps = new ClasspathProperties( Collections.<Properties>emptyList(), (List<Properties>) in.readObject() );
     }
 
     public void writeExternal(ObjectOutput out) throws IOException {
-        out.writeObject( props );
-        out.writeObject( defaultProps );
+        List<Properties> allProps = new ArrayList<Properties>( props );
+        allProps.addAll( classpathProps.props );
+        out.writeObject( allProps );
+        out.writeObject( new ArrayList<Properties>( classpathProps.defaultProps ) );
     }
 
     /**
@@ -119,12 +169,7 @@ public class ChainedProperties
             }
         }
         if ( value == null ) {
-            for ( Properties props : this.defaultProps ) {
-                value = props.getProperty( key );
-                if ( value != null ) {
-                    break;
-                }
-            }
+            value = classpathProps.values.get( key );
         }
         return (value != null) ? value : defaultValue;
     }
@@ -139,9 +184,10 @@ public class ChainedProperties
                            includeSubProperties );
         }
 
-        for ( Properties props : this.defaultProps ) {
+        for ( Map.Entry<String, String> entry : classpathProps.startingWith( startsWith ).entrySet() ) {
             mapStartsWith( map,
-                           props,
+                           entry.getKey(),
+                           entry.getValue(),
                            startsWith,
                            includeSubProperties );
         }
@@ -155,29 +201,40 @@ public class ChainedProperties
         while ( enumeration.hasMoreElements() ) {
             String key = (String) enumeration.nextElement();
             if ( key.startsWith( startsWith ) ) {
-                if ( !includeSubProperties && key.substring( startsWith.length() + 1 ).indexOf( '.' ) > 0 ) {
-                    // +1 to the length, as we do allow the direct property, just not ones below it
-                    // This key has sub properties beyond the given startsWith, so skip
-                    continue;
-                }
-                if ( !map.containsKey( key ) ) {
-                    map.put( key,
-                             properties.getProperty( key ) );
-                }
-
+                mapStartsWith( map,
+                               key,
+                               properties.getProperty( key ),
+                               startsWith,
+                               includeSubProperties );
             }
         }
     }
 
-    private void loadProperties(String fileName,
-                                ClassLoader classLoader,
-                                List<Properties> chain) {
+    private void mapStartsWith(Map<String, String> map,
+                               String key,
+                               String value,
+                               String startsWith,
+                               boolean includeSubProperties) {
+        if ( !includeSubProperties && key.substring( startsWith.length() + 1 ).indexOf( '.' ) > 0 ) {
+            // +1 to the length, as we do allow the direct property, just not ones below it
+            // This key has sub properties beyond the given startsWith, so skip
+            return;
+        }
+        if ( !map.containsKey( key ) ) {
+            map.put( key,
+                     value );
+        }
+    }
+
+    private static void loadProperties(String fileName,
+                                       ClassLoader classLoader,
+                                       List<Properties> chain) {
         try {
             chain.addAll(read(fileName,classLoader));
         } catch (IOException e){}
     }
 
-    private List<Properties> read(String fileName, ClassLoader classLoader)
+    private static List<Properties> read(String fileName, ClassLoader classLoader)
             throws IOException {
         List<Properties> properties = new ArrayList<>();
         Enumeration<URL> resources;
@@ -197,7 +254,7 @@ public class ChainedProperties
         return properties;
     }
 
-    private void loadProperties(URL confURL, List<Properties> chain) {
+    private static void loadProperties(URL confURL, List<Properties> chain) {
         if ( confURL == null ) {
             return;
         }
@@ -209,4 +266,41 @@ public class ChainedProperties
             //throw new IllegalArgumentException( "Invalid URL to properties file '" + confURL.toExternalForm() + "'" );
         }
     }
+
+    /**
+     * Immutable view of the properties read from the META-INF/ conf files, flattened in a single map where
+     * the value of each key is the one with the highest priority. The keys are also kept sorted, so the
+     * properties starting with a given prefix can be found without iterating all of them.
+     */
+    private static class ClasspathProperties {
+
+        private static final ClasspathProperties EMPTY = new ClasspathProperties( Collections.<Properties>emptyList(),
+                                                                                  Collections.<Properties>emptyList() );
+
+        private final List<Properties> props;
+        private final List<Properties> defaultProps;
+        private final Map<String, String> values;
+        private final NavigableMap<String, String> sortedValues;
+
+        private ClasspathProperties(List<Properties> props, List<Properties> defaultProps) {
+            this.props = Collections.unmodifiableList( props );
+            this.defaultProps = Collections.unmodifiableList( defaultProps );
+            this.sortedValues = new TreeMap<String, String>();
+            flatten( props );
+            flatten( defaultProps );
+            this.values = new HashMap<String, String>( sortedValues );
+        }
+
+        private void flatten(List<Properties> chain) {
+            for ( Properties properties : chain ) {
+                for ( String key : properties.stringPropertyNames() ) {
+                    sortedValues.putIfAbsent( key, properties.getProperty( key ) );
+                }
+            }
+        }
+
+        private Map<String, String> startingWith(String prefix) {
+            return sortedValues.subMap( prefix, true, prefix + Character.MAX_VALUE, false );
+        }
+    }
 }
@@ -16,20 +16,34 @@
 
 package org.kie.internal.utils;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 /**
  * This is an Internal Drools Class
@@ -38,6 +52,13 @@ public class CompositeClassLoader extends ClassLoader {
     /* Assumption: modifications are really rare, but iterations are frequent. */
     private final List<ClassLoader>       classLoaders = new CopyOnWriteArrayList<ClassLoader>();
     private final AtomicReference<Loader> loader       = new AtomicReference<Loader>();
+    /* null when the routing of lookups to the child ClassLoader owning a package is disabled */
+    private volatile PackageIndex         packageIndex;
+    private ObjectName                    monitorName;
+
+    static {
+        registerAsParallelCapable();
+    }
 
     public CompositeClassLoader() {
         super( null );
@@ -56,6 +77,75 @@ public class CompositeClassLoader extends ClassLoader {
         }
     }
 
+    /**
+     * Returns the lookup statistics of this ClassLoader, that can be registered as an MXBean,
+     * or null if caching isn't enabled
+     */
+    public CompositeClassLoaderMonitorMXBean getMonitor() {
+        Loader current = loader.get();
+        return current instanceof CachingLoader ? (CachingLoader) current : null;
+    }
+
+    /**
+     * Registers the lookup statistics as an MXBean in the platform MBeanServer. The registered
+     * MXBean follows the caching being enabled or disabled later, reporting no lookups while disabled.
+     */
+    public synchronized void registerMonitor(ObjectName name) {
+        unregisterMonitor();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean( new Monitor( this ), name );
+            this.monitorName = name;
+        } catch ( JMException e ) {
+            throw new RuntimeException( "Unable to register the monitor of the ClassLoader as " + name, e );
+        }
+    }
+
+    public synchronized void unregisterMonitor() {
+        if ( this.monitorName != null ) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                if ( server.isRegistered( this.monitorName ) ) {
+                    server.unregisterMBean( this.monitorName );
+                }
+            } catch ( JMException e ) {
+                throw new RuntimeException( "Unable to unregister the monitor of the ClassLoader " + this.monitorName, e );
+            }
+            this.monitorName = null;
+        }
+    }
+
+    /**
+     * Clears the cached lookups, so that classes previously not found will be searched again.
+     * Classes defined later by a child {@link FastClassLoader} are found even without clearing,
+     * while this has to be invoked when any other child ClassLoader can define new classes.
+     */
+    public void clearCache() {
+        this.loader.get().reset();
+        if ( this.packageIndex != null ) {
+            this.packageIndex = new PackageIndex();
+        }
+    }
+
+    public boolean isPackageIndexEnabled() {
+        return this.packageIndex != null;
+    }
+
+    /**
+     * When enabled, the packages found in the jars of the child URLClassLoaders are mapped to the only
+     * child ClassLoader containing them, so that the lookups of their classes go straight to it instead
+     * of trying all the child ClassLoaders in order. Packages split among more child ClassLoaders, or
+     * that a preceding child ClassLoader not made only of jars could contain, keep the ordered search.
+     * Only the child URLClassLoaders delegating to the same boot or system ClassLoader are indexed, so
+     * that the parent delegation gives the same result along the ordered search and the routed lookup.
+     * The jars are indexed by the first lookup after the set of child ClassLoaders changes, and the
+     * path of each found resource is mapped to the child ClassLoader it came from.
+     */
+    public synchronized void setPackageIndexEnabled(boolean enabled) {
+        if ( enabled != isPackageIndexEnabled() ) {
+            this.packageIndex = enabled ? new PackageIndex() : null;
+        }
+    }
+
     public synchronized void addClassLoader(final ClassLoader classLoader) {
         /* NB: we need synchronized here even though we use a COW list:
          *     two threads may try to add the same new class loader, so we need
@@ -68,7 +158,7 @@ public class CompositeClassLoader extends ClassLoader {
             }
         }
         this.classLoaders.add( 0, classLoader );
-        this.loader.get().reset();
+        clearCache();
     }
 
     public synchronized void addClassLoaderToEnd(final ClassLoader classLoader) {
@@ -83,7 +173,7 @@ public class CompositeClassLoader extends ClassLoader {
             }
         }
         this.classLoaders.add( classLoader );
-        this.loader.get().reset();
+        clearCache();
     }
 
     public synchronized void removeClassLoader(final ClassLoader classLoader) {
@@ -91,7 +181,7 @@ public class CompositeClassLoader extends ClassLoader {
          * addClassLoader(x) and removeClassLoader(x).
          */
         classLoaders.remove( classLoader );
-        this.loader.get().reset();
+        clearCache();
     }
 
     /**
@@ -133,9 +223,21 @@ public class CompositeClassLoader extends ClassLoader {
      * and the parent ClassLoader if one is provided
      */
     public InputStream getResourceAsStream(final String name) {
+        PackageIndex index = this.packageIndex;
+        ClassLoader owner = index != null ? index.getResourceOwner( name ) : null;
+        if ( owner != null ) {
+            InputStream stream = owner.getResourceAsStream( name );
+            if ( stream != null ) {
+                return stream;
+            }
+        }
+
         for ( final ClassLoader classLoader : this.classLoaders ) {
             InputStream stream = classLoader.getResourceAsStream( name );
             if ( stream != null ) {
+                if ( index != null ) {
+                    index.indexResource( name, classLoader );
+                }
                 return stream;
             }
         }
@@ -145,9 +247,21 @@ public class CompositeClassLoader extends ClassLoader {
 
     @Override
     public URL getResource(String name) {
+        PackageIndex index = this.packageIndex;
+        ClassLoader owner = index != null ? index.getResourceOwner( name ) : null;
+        if ( owner != null ) {
+            URL url = owner.getResource( name );
+            if ( url != null ) {
+                return url;
+            }
+        }
+
         for ( final ClassLoader classLoader : this.classLoaders ) {
             URL url = classLoader.getResource( name );
             if ( url != null ) {
+                if ( index != null ) {
+                    index.indexResource( name, classLoader );
+                }
                 return url;
             }
         }
@@ -159,6 +273,7 @@ public class CompositeClassLoader extends ClassLoader {
     public Enumeration<URL> getResources(String name) throws IOException {
         CompositeEnumeration<URL> enumerations = new CompositeEnumeration<URL>();
 
+        // the owners aren't indexed, as any child ClassLoader could define the same resource later
         for ( final ClassLoader classLoader : this.classLoaders ) {
             Enumeration<URL> e = classLoader.getResources( name );
             if ( e != null ) {
@@ -169,10 +284,35 @@ public class CompositeClassLoader extends ClassLoader {
         return enumerations;
     }
 
+    private ClassLoader getPackageOwner(String className, ClassLoader ignore) {
+        PackageIndex index = this.packageIndex;
+        if ( index == null ) {
+            return null;
+        }
+        ClassLoader owner = index.getPackageOwner( this.classLoaders, className );
+        return owner != ignore ? owner : null;
+    }
+
     public void dumpStats() {
         System.out.println( loader.toString() );
     }
 
+    private static Class< ? > loadFromChild(ClassLoader classLoader,
+                                            String name,
+                                            boolean resolve) {
+        if ( classLoader instanceof FastClassLoader ) {
+            return ((FastClassLoader)classLoader).fastFindClass( name );
+        }
+        try {
+            return Class.forName( name,
+                                  resolve,
+                                  classLoader );
+        } catch ( ClassNotFoundException e ) {
+            // swallow as we need to check more classLoaders
+            return null;
+        }
+    }
+
     private static interface Loader {
         public Class< ? > load(final CompositeClassLoader cl,
                                final String name,
@@ -206,23 +346,18 @@ public class CompositeClassLoader extends ClassLoader {
                                String name,
                                boolean resolve,
                                ClassLoader ignore) {
-            // search the child ClassLoaders
-            Class< ? > cls = null;
+            // try the child ClassLoader owning the package first, if known
+            ClassLoader routed = cl.getPackageOwner( name, ignore );
+            Class< ? > cls = routed != null ? loadFromChild( routed, name, resolve ) : null;
+            if ( cls != null ) {
+                return cls;
+            }
 
+            // search the child ClassLoaders
             for ( final ClassLoader classLoader : cl.classLoaders ) {
-                if ( classLoader != ignore ) {
-                    if ( classLoader instanceof FastClassLoader ) {
-                        cls = ((FastClassLoader)classLoader).fastFindClass( name );
-                    } else {
-                        // we ignore a calling classloader, to stop recursion
-                        try {
-                            cls = Class.forName( name,
-                                                 resolve,
-                                                 classLoader );
-                        } catch ( ClassNotFoundException e ) {
-                            // swallow as we need to check more classLoaders
-                        }
-                    }
+                // we ignore a calling classloader, to stop recursion
+                if ( classLoader != ignore && classLoader != routed ) {
+                    cls = loadFromChild( classLoader, name, resolve );
                     if ( cls != null ) {
                         break;
                     }
@@ -239,12 +374,19 @@ public class CompositeClassLoader extends ClassLoader {
 
     private static class CachingLoader
         implements
-        Loader {
+        Loader,
+        CompositeClassLoaderMonitorMXBean {
+
+        private static final int                     MAX_NEGATIVE_CACHE_SIZE = 10000;
 
-        private final Map<String, Object> classLoaderResultMap = new HashMap<String, Object>();
-        public long                       successfulCalls      = 0;
-        public long                       failedCalls          = 0;
-        public long                       cacheHits            = 0;
+        /* replaced as a whole on reset, so that a lookup running meanwhile only fills the discarded one */
+        private volatile Cache                       cache                = new Cache();
+        private final LongAdder                      successfulCalls      = new LongAdder();
+        private final LongAdder                      failedCalls          = new LongAdder();
+        private final LongAdder                      cacheHits            = new LongAdder();
+        private final LongAdder                      negativeCacheHits    = new LongAdder();
+        private final Map<ClassLoader, LongAdder>    hitsPerClassLoader   = new ConcurrentHashMap<ClassLoader, LongAdder>();
+        private final Map<ClassLoader, LongAdder>    missesPerClassLoader = new ConcurrentHashMap<ClassLoader, LongAdder>();
 
         public Class< ? > load(final CompositeClassLoader cl,
                                final String name,
@@ -256,53 +398,304 @@ public class CompositeClassLoader extends ClassLoader {
                                String name,
                                boolean resolve,
                                ClassLoader ignore) {
-            if ( classLoaderResultMap.containsKey( name ) ) {
-                cacheHits++;
-                return (Class< ? >) classLoaderResultMap.get( name );
+            Cache current = this.cache;
+            Class< ? > cls = current.classLoaderResultMap.get( name );
+            if ( cls != null ) {
+                cacheHits.increment();
+                return cls;
+            }
+            // a miss is cached only when all the child ClassLoaders have been searched
+            if ( ignore == null && current.notFoundClasses.contains( name ) ) {
+                // a FastClassLoader may have defined the class afterwards
+                cls = loadFromFastChildren( cl, name );
+                if ( cls == null ) {
+                    negativeCacheHits.increment();
+                    return null;
+                }
+                current.notFoundClasses.remove( name );
+                current.classLoaderResultMap.put( name, cls );
+                successfulCalls.increment();
+                return cls;
+            }
+            // try the child ClassLoader owning the package first, if known
+            ClassLoader routed = cl.getPackageOwner( name, ignore );
+            if ( routed != null ) {
+                cls = loadFromChild( routed, name, resolve );
+                count( cls != null ? hitsPerClassLoader : missesPerClassLoader, routed );
             }
-            // search the child ClassLoaders
-            Class< ? > cls = null;
 
-            for ( final ClassLoader classLoader : cl.classLoaders ) {
-                if ( classLoader != ignore ) {
-                    if ( classLoader instanceof FastClassLoader ) {
-                        cls = ((FastClassLoader)classLoader).fastFindClass( name );
-                    } else {
-                        // we ignore a calling classloader, to stop recursion
-                        try {
-                            cls = Class.forName( name,
-                                                 resolve,
-                                                 classLoader );
-                        } catch ( ClassNotFoundException e ) {
-                            // swallow as we need to check more classLoaders
+            // search the child ClassLoaders
+            if ( cls == null ) {
+                for ( final ClassLoader classLoader : cl.classLoaders ) {
+                    // we ignore a calling classloader, to stop recursion
+                    if ( classLoader != ignore && classLoader != routed ) {
+                        cls = loadFromChild( classLoader, name, resolve );
+                        if ( cls != null ) {
+                            count( hitsPerClassLoader, classLoader );
+                                break;
                         }
-                    }
-                    if ( cls != null ) {
-                        break;
+                        count( missesPerClassLoader, classLoader );
                     }
                 }
             }
             if ( cls != null ) {
-                classLoaderResultMap.put( name,
-                                          cls );
-
-                this.successfulCalls++;
+                current.classLoaderResultMap.put( name,
+                                                  cls );
+                successfulCalls.increment();
             } else {
-                this.failedCalls++;
+                if ( ignore == null ) {
+                    if ( current.notFoundClasses.size() >= MAX_NEGATIVE_CACHE_SIZE ) {
+                        current.notFoundClasses.clear();
+                    }
+                    current.notFoundClasses.add( name );
+                }
+                failedCalls.increment();
             }
 
             return cls;
         }
 
+        private static Class< ? > loadFromFastChildren(CompositeClassLoader cl, String name) {
+            for ( final ClassLoader classLoader : cl.classLoaders ) {
+                if ( classLoader instanceof FastClassLoader ) {
+                    Class< ? > cls = ((FastClassLoader) classLoader).fastFindClass( name );
+                    if ( cls != null ) {
+                        return cls;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private static void count(Map<ClassLoader, LongAdder> counters, ClassLoader classLoader) {
+            counters.computeIfAbsent( classLoader, k -> new LongAdder() ).increment();
+        }
+
         public void reset() {
-            this.classLoaderResultMap.clear();
-            this.successfulCalls = this.failedCalls = this.cacheHits = 0;
+            this.cache = new Cache();
+            this.hitsPerClassLoader.clear();
+            this.missesPerClassLoader.clear();
+            this.successfulCalls.reset();
+            this.failedCalls.reset();
+            this.cacheHits.reset();
+            this.negativeCacheHits.reset();
+        }
+
+        public long getCacheHits() {
+            return cacheHits.sum();
+        }
+
+        public long getNegativeCacheHits() {
+            return negativeCacheHits.sum();
+        }
+
+        public long getSuccessfulCalls() {
+            return successfulCalls.sum();
+        }
+
+        public long getFailedCalls() {
+            return failedCalls.sum();
+        }
+
+        public long getCacheSize() {
+            return cache.classLoaderResultMap.size();
+        }
+
+        public long getNegativeCacheSize() {
+            return cache.notFoundClasses.size();
+        }
+
+        public Map<String, Long> getHitsPerClassLoader() {
+            return toStats( hitsPerClassLoader );
+        }
+
+        public Map<String, Long> getMissesPerClassLoader() {
+            return toStats( missesPerClassLoader );
+        }
+
+        private static Map<String, Long> toStats(Map<ClassLoader, LongAdder> counters) {
+            Map<String, Long> stats = new HashMap<String, Long>();
+            for ( Map.Entry<ClassLoader, LongAdder> entry : counters.entrySet() ) {
+                stats.merge( entry.getKey().toString(), entry.getValue().sum(), Long::sum );
+            }
+            return stats;
         }
 
         public String toString() {
-            return new StringBuilder().append( "TotalCalls: " ).append( successfulCalls + failedCalls + cacheHits ).append( " CacheHits: " ).append( cacheHits ).append( " successfulCalls: " ).append( successfulCalls ).append( " FailedCalls: " ).append( failedCalls ).toString();
+            return new StringBuilder().append( "TotalCalls: " ).append( getSuccessfulCalls() + getFailedCalls() + getCacheHits() + getNegativeCacheHits() ).append( " CacheHits: " ).append( getCacheHits() ).append( " NegativeCacheHits: " ).append( getNegativeCacheHits() ).append( " successfulCalls: " ).append( getSuccessfulCalls() ).append( " FailedCalls: " ).append( getFailedCalls() ).toString();
+        }
+
+        private static class Cache {
+            private final Map<String, Class< ? >> classLoaderResultMap = new ConcurrentHashMap<String, Class< ? >>();
+            /* class names that no child ClassLoader was able to load, cleared when it grows too much */
+            private final Set<String>             notFoundClasses      = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+        }
+    }
+
+    /**
+     * The MXBean registered by {@link #registerMonitor(ObjectName)}, delegating to the current caching loader
+     */
+    private static class Monitor
+        implements
+        CompositeClassLoaderMonitorMXBean {
+
+        private final CompositeClassLoader classLoader;
+
+        private Monitor(CompositeClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        public long getCacheHits() {
+            CompositeClassLoaderMonitorMXBean monitor = classLoader.getMonitor();
+            return monitor != null ? monitor.getCacheHits() : 0;
+        }
+
+        public long getNegativeCacheHits() {
+            CompositeClassLoaderMonitorMXBean monitor = classLoader.getMonitor();
+            return monitor != null ? monitor.getNegativeCacheHits() : 0;
+        }
+
+        public long getSuccessfulCalls() {
+            CompositeClassLoaderMonitorMXBean monitor = classLoader.getMonitor();
+            return monitor != null ? monitor.getSuccessfulCalls() : 0;
+        }
+
+        public long getFailedCalls() {
+            CompositeClassLoaderMonitorMXBean monitor = classLoader.getMonitor();
+            return monitor != null ? monitor.getFailedCalls() : 0;
+        }
+
+        public long getCacheSize() {
+            CompositeClassLoaderMonitorMXBean monitor = classLoader.getMonitor();
+            return monitor != null ? monitor.getCacheSize() : 0;
+        }
+
+        public long getNegativeCacheSize() {
+            CompositeClassLoaderMonitorMXBean monitor = classLoader.getMonitor();
+            return monitor != null ? monitor.getNegativeCacheSize() : 0;
+        }
+
+        public Map<String, Long> getHitsPerClassLoader() {
+            CompositeClassLoaderMonitorMXBean monitor = classLoader.getMonitor();
+            return monitor != null ? monitor.getHitsPerClassLoader() : Collections.<String, Long>emptyMap();
         }
 
+        public Map<String, Long> getMissesPerClassLoader() {
+            CompositeClassLoaderMonitorMXBean monitor = classLoader.getMonitor();
+            return monitor != null ? monitor.getMissesPerClassLoader() : Collections.<String, Long>emptyMap();
+        }
+
+        public void reset() {
+            classLoader.clearCache();
+        }
+    }
+
+    private static class PackageIndex {
+
+        /* null until the jars have been indexed */
+        private volatile Map<String, ClassLoader> packages;
+        private final Map<String, ClassLoader>    resources = new ConcurrentHashMap<String, ClassLoader>();
+
+        public ClassLoader getPackageOwner(List<ClassLoader> classLoaders,
+                                           String className) {
+            Map<String, ClassLoader> indexed = this.packages;
+            if ( indexed == null ) {
+                synchronized ( this ) {
+                    indexed = this.packages;
+                    if ( indexed == null ) {
+                        indexed = indexJars( new ArrayList<ClassLoader>( classLoaders ) );
+                        this.packages = indexed;
+                    }
+                }
+            }
+            return indexed.get( packageName( className ) );
+        }
+
+        public ClassLoader getResourceOwner(String name) {
+            return resources.get( name );
+        }
+
+        public void indexResource(String name,
+                                  ClassLoader classLoader) {
+            resources.putIfAbsent( name, classLoader );
+        }
+
+        private static Map<String, ClassLoader> indexJars(List<ClassLoader> classLoaders) {
+            Map<String, ClassLoader> owners = new HashMap<String, ClassLoader>();
+            Set<String> unroutable = new HashSet<String>();
+            boolean opaqueFound = false;
+            ClassLoader sharedParent = null;
+            boolean parentFound = false;
+            // routing a package to its owner keeps the first-wins order only if no preceding child can contain it
+            for ( ClassLoader classLoader : classLoaders ) {
+                Set<String> jarPackages = null;
+                if ( isSystemDelegation( classLoader.getParent() ) && ( !parentFound || classLoader.getParent() == sharedParent ) ) {
+                    jarPackages = jarPackages( classLoader );
+                }
+                if ( jarPackages == null ) {
+                    opaqueFound = true;
+                    continue;
+                }
+                sharedParent = classLoader.getParent();
+                parentFound = true;
+                for ( String pkg : jarPackages ) {
+                    if ( opaqueFound || unroutable.contains( pkg ) || owners.containsKey( pkg ) ) {
+                        owners.remove( pkg );
+                        unroutable.add( pkg );
+                    } else {
+                        owners.put( pkg, classLoader );
+                    }
+                }
+            }
+            return owners;
+        }
+
+        /**
+         * Returns true if the given parent is the boot ClassLoader, the system one or one of its ancestors,
+         * whose packages can't change during the lookups
+         */
+        private static boolean isSystemDelegation(ClassLoader parent) {
+            for ( ClassLoader known = ClassLoader.getSystemClassLoader(); known != null; known = known.getParent() ) {
+                if ( known == parent ) {
+                    return true;
+                }
+            }
+            return parent == null;
+        }
+
+        /**
+         * Returns the packages of the classes in the jars of the given ClassLoader, or null if
+         * it isn't an URLClassLoader made only of readable jars
+         */
+        private static Set<String> jarPackages(ClassLoader classLoader) {
+            if ( !( classLoader instanceof URLClassLoader ) ) {
+                return null;
+            }
+            Set<String> jarPackages = new HashSet<String>();
+            for ( URL url : ((URLClassLoader) classLoader).getURLs() ) {
+                if ( !"file".equals( url.getProtocol() ) || !url.getPath().endsWith( ".jar" ) ) {
+                    return null;
+                }
+                try (JarFile jarFile = new JarFile( new File( url.toURI() ) )) {
+                    Enumeration<JarEntry> entries = jarFile.entries();
+                    while ( entries.hasMoreElements() ) {
+                        String entryName = entries.nextElement().getName();
+                        int lastSlash = entryName.lastIndexOf( '/' );
+                        if ( entryName.endsWith( ".class" ) && lastSlash > 0 ) {
+                            jarPackages.add( entryName.substring( 0, lastSlash ).replace( '/', '.' ) );
+                        }
+                    }
+                } catch ( IOException | URISyntaxException | IllegalArgumentException e ) {
+                    return null;
+                }
+            }
+            return jarPackages;
+        }
+
+        private static String packageName(String className) {
+            int lastDot = className.lastIndexOf( '.' );
+            return lastDot > 0 ? className.substring( 0, lastDot ) : "";
+        }
     }
 
     private static class CompositeEnumeration<URL>
@@ -367,6 +760,7 @@ public class CompositeClassLoader extends ClassLoader {
         if ( this.loader.get() instanceof CachingLoader ) {
             classLoader.setCachingEnabled( true );
         }
+        classLoader.setPackageIndexEnabled( isPackageIndexEnabled() );
         return classLoader;
     }
 }
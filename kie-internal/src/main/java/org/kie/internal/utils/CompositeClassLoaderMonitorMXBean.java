@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.internal.utils;
+
+import java.util.Map;
+
+/**
+ * Statistics of the class lookups performed by a {@link CompositeClassLoader} with caching enabled.
+ * This is an Internal Drools Class
+ */
+public interface CompositeClassLoaderMonitorMXBean {
+
+    /**
+     * @return the number of lookups answered by the cache of loaded classes
+     */
+    long getCacheHits();
+
+    /**
+     * @return the number of lookups answered by the cache of classes not found
+     */
+    long getNegativeCacheHits();
+
+    /**
+     * @return the number of lookups that had to search the child ClassLoaders and found the class
+     */
+    long getSuccessfulCalls();
+
+    /**
+     * @return the number of lookups that had to search the child ClassLoaders and didn't find the class
+     */
+    long getFailedCalls();
+
+    long getCacheSize();
+
+    long getNegativeCacheSize();
+
+    /**
+     * @return for each child ClassLoader, the number of classes it successfully loaded
+     */
+    Map<String, Long> getHitsPerClassLoader();
+
+    /**
+     * @return for each child ClassLoader, the number of lookups it failed
+     */
+    Map<String, Long> getMissesPerClassLoader();
+
+    /**
+     * Clears both caches and all the statistics
+     */
+    void reset();
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.builder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.management.GAV;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class CompilationCacheTest {
+
+    private static final byte[] RULE = "rule R when then end".getBytes(StandardCharsets.UTF_8);
+    private static final Map<String, String> NO_IMPORTS = Collections.<String, String>emptyMap();
+
+    @Test
+    public void testKeyDependsOnPackageAndDependencies() {
+        final Map<String, byte[]> resources = new HashMap<String, byte[]>();
+        resources.put("r1.drl", RULE);
+        resources.put("types.drl", "declare T end".getBytes(StandardCharsets.UTF_8));
+        final Map<String, String> dependencies = Collections.singletonMap("org.kie:dep:1.0", "abc");
+
+        final String context = CompilationCache.computeContextKey(resources, NO_IMPORTS, dependencies);
+        assertEquals(context, CompilationCache.computeContextKey(new HashMap<String, byte[]>(resources), NO_IMPORTS, dependencies));
+
+        final Map<String, byte[]> changedResources = new HashMap<String, byte[]>(resources);
+        changedResources.put("types.drl", "declare T x : int end".getBytes(StandardCharsets.UTF_8));
+        final String changedPackage = CompilationCache.computeContextKey(changedResources, NO_IMPORTS, dependencies);
+        final String changedDependency = CompilationCache.computeContextKey(resources, NO_IMPORTS, Collections.singletonMap("org.kie:dep:1.0", "abd"));
+        assertNotEquals(context, changedPackage);
+        assertNotEquals(context, changedDependency);
+
+        final Map<String, String> options = Collections.singletonMap("drools.dialect.java.compiler.lnglevel", "1.8");
+        final String key = CompilationCache.computeKey(RULE, null, options, context);
+        assertEquals(key, CompilationCache.computeKey(RULE, null, options, context));
+        assertNotEquals(key, CompilationCache.computeKey(RULE, null, options, changedPackage));
+        assertNotEquals(key, CompilationCache.computeKey(RULE, null, options, changedDependency));
+    }
+
+    @Test
+    public void testKeyDependsOnImportedPackages() {
+        final Map<String, byte[]> resources = Collections.singletonMap("r1.drl", RULE);
+        final Map<String, byte[]> imported = Collections.singletonMap("types.drl", "declare T end".getBytes(StandardCharsets.UTF_8));
+        final Map<String, byte[]> changedImported = Collections.singletonMap("types.drl", "declare T x : int end".getBytes(StandardCharsets.UTF_8));
+
+        final String context = CompilationCache.computeContextKey(resources, Collections.singletonMap("org.types", CompilationCache.computePackageKey(imported)), NO_IMPORTS);
+        final String changedContext = CompilationCache.computeContextKey(resources, Collections.singletonMap("org.types", CompilationCache.computePackageKey(changedImported)), NO_IMPORTS);
+        assertNotEquals(context, changedContext);
+        assertNotEquals(context, CompilationCache.computeContextKey(resources, NO_IMPORTS, NO_IMPORTS));
+        assertNotEquals(CompilationCache.computeKey(RULE, null, null, context), CompilationCache.computeKey(RULE, null, null, changedContext));
+    }
+
+    @Test
+    public void testContentKeyDoesNotDependOnContext() throws Exception {
+        final CompilationCache cache = new CompilationCache(Files.createTempDirectory("kie-cache").toFile());
+        final ReleaseId releaseId = new GAV("org.kie", "test", "1.0");
+        final byte[] other = "rule S when then end".getBytes(StandardCharsets.UTF_8);
+        final Map<String, String> keys = new HashMap<String, String>();
+        keys.put("r.drl", CompilationCache.computeContentKey(RULE, null, null));
+        keys.put("s.drl", CompilationCache.computeContentKey(other, null, null));
+        cache.setResourceKeys(releaseId, keys);
+
+        // editing s.drl changes the context of r.drl, but only s.drl is reported as changed
+        keys.put("s.drl", CompilationCache.computeContentKey("rule S2 when then end".getBytes(StandardCharsets.UTF_8), null, null));
+        final List<ResourceChangeSet> changes = cache.getChanges(releaseId, keys);
+        assertEquals(1, changes.size());
+        assertEquals("s.drl", changes.get(0).getResourceName());
+    }
+
+    @Test
+    public void testInvalidKeysAreRejected() throws Exception {
+        final CompilationCache cache = new CompilationCache(Files.createTempDirectory("kie-cache").toFile());
+        for (final String key : new String[]{"", "a", "../../../../etc/passwd", CompilationCache.computeKey(RULE, null, null, null).toUpperCase()}) {
+            try {
+                cache.get(key);
+                fail("Key " + key + " should be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            try {
+                cache.put(key, Collections.<String, byte[]>emptyMap());
+                fail("Key " + key + " should be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testKeyInputIsNotAmbiguous() {
+        final Map<String, String> options = Collections.singletonMap("a", "b");
+        assertNotEquals(CompilationCache.computeKey("a=b\n".getBytes(StandardCharsets.UTF_8), null, null, null),
+                        CompilationCache.computeKey(new byte[0], null, options, null));
+        assertNotEquals(CompilationCache.computeKey(new byte[0], null, Collections.singletonMap("a=b\nc", "d"), null),
+                        CompilationCache.computeKey(new byte[0], null, Collections.singletonMap("a", "b\nc=d"), null));
+        assertNotEquals(CompilationCache.computeKey(new byte[0], null, Collections.<String, String>emptyMap(), null),
+                        CompilationCache.computeKey(new byte[0], null, null, null));
+
+        final Map<String, byte[]> joined = Collections.singletonMap("ab", new byte[0]);
+        final Map<String, byte[]> split = Collections.singletonMap("a", "b".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(CompilationCache.computeContextKey(joined, NO_IMPORTS, NO_IMPORTS),
+                        CompilationCache.computeContextKey(split, NO_IMPORTS, NO_IMPORTS));
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        final CompilationCache cache = new CompilationCache(Files.createTempDirectory("kie-cache").toFile());
+        final String key = CompilationCache.computeKey(RULE, null, null, null);
+        assertNull(cache.get(key));
+
+        final Map<String, byte[]> artifacts = new LinkedHashMap<String, byte[]>();
+        artifacts.put("org/test/Rule.class", new byte[]{1, 2, 3});
+        artifacts.put("package", new byte[0]);
+        cache.put(key, artifacts);
+
+        final Map<String, byte[]> cached = cache.get(key);
+        assertEquals(artifacts.keySet(), cached.keySet());
+        assertArrayEquals(new byte[]{1, 2, 3}, cached.get("org/test/Rule.class"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testCorruptEntryIsDiscarded() throws Exception {
+        final File dir = Files.createTempDirectory("kie-cache").toFile();
+        final CompilationCache cache = new CompilationCache(dir);
+        final String key = CompilationCache.computeKey(RULE, null, null, null);
+        cache.put(key, Collections.singletonMap("org/test/Rule.class", new byte[]{1, 2, 3}));
+        final Path entry = findEntry(dir, key);
+
+        for (final int length : new int[]{-1, Integer.MAX_VALUE, 4}) {
+            try (OutputStream os = Files.newOutputStream(entry);
+                 DataOutputStream out = new DataOutputStream(os)) {
+                out.writeInt(1);
+                out.writeInt(1);
+                out.writeUTF("org/test/Rule.class");
+                out.writeInt(length);
+                out.write(new byte[]{1, 2, 3});
+            }
+            final long misses = cache.getMisses();
+            assertNull(cache.get(key));
+            assertEquals(misses + 1, cache.getMisses());
+            assertFalse(Files.exists(entry));
+            Files.createFile(entry);
+        }
+
+        try (OutputStream os = Files.newOutputStream(entry);
+             DataOutputStream out = new DataOutputStream(os)) {
+            out.writeInt(1);
+            out.writeInt(-5);
+        }
+        assertNull(cache.get(key));
+        assertFalse(Files.exists(entry));
+    }
+
+    @Test
+    public void testChanges() throws Exception {
+        final CompilationCache cache = new CompilationCache(Files.createTempDirectory("kie-cache").toFile());
+        final ReleaseId releaseId = new GAV("org.kie", "test", "1.0");
+        final Map<String, String> keys = new HashMap<String, String>();
+        keys.put("a.drl", "1");
+        keys.put("b.drl", "2");
+        assertEquals(2, cache.getChanges(releaseId, keys).size());
+        cache.setResourceKeys(releaseId, keys);
+
+        keys.remove("a.drl");
+        keys.put("b.drl", "3");
+        keys.put("c.drl", "4");
+        final List<ResourceChangeSet> changes = cache.getChanges(releaseId, keys);
+        assertEquals(3, changes.size());
+        assertEquals("a.drl", changes.get(0).getResourceName());
+        assertEquals(ChangeType.REMOVED, changes.get(0).getChangeType());
+        assertEquals(ChangeType.UPDATED, changes.get(1).getChangeType());
+        assertEquals(ChangeType.ADDED, changes.get(2).getChangeType());
+    }
+
+    private static Path findEntry(final File dir, final String key) throws Exception {
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            return paths.filter(path -> path.getFileName().toString().equals(key)).findFirst().get();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class KieBaseBuildSchedulerTest {
+
+    @Test
+    public void testIncludesAreBuiltFirst() {
+        final Map<String, Collection<String>> includes = new LinkedHashMap<String, Collection<String>>();
+        includes.put("kb4", Arrays.asList("kb2", "kb3"));
+        includes.put("kb1", Collections.<String>emptyList());
+        includes.put("kb2", Collections.singletonList("kb1"));
+        includes.put("kb3", Arrays.asList("kb1", "org.kie:dependency"));
+
+        for (final int parallelism : new int[]{1, 4}) {
+            final List<String> built = Collections.synchronizedList(new ArrayList<String>());
+            final Map<String, String> results = KieBaseBuildScheduler.buildAll(includes, name -> {
+                built.add(name);
+                return "built " + name;
+            }, parallelism);
+
+            assertEquals(new ArrayList<String>(includes.keySet()), new ArrayList<String>(results.keySet()));
+            assertEquals("built kb4", results.get("kb4"));
+            assertEquals(4, built.size());
+            assertTrue(built.indexOf("kb1") < built.indexOf("kb2"));
+            assertTrue(built.indexOf("kb1") < built.indexOf("kb3"));
+            assertTrue(built.indexOf("kb2") < built.indexOf("kb4"));
+            assertTrue(built.indexOf("kb3") < built.indexOf("kb4"));
+        }
+    }
+
+    @Test
+    public void testCircularIncludes() {
+        final Map<String, Collection<String>> includes = new LinkedHashMap<String, Collection<String>>();
+        includes.put("kb1", Collections.<String>emptyList());
+        includes.put("kb2", Collections.singletonList("kb3"));
+        includes.put("kb3", Collections.singletonList("kb4"));
+        includes.put("kb4", Collections.singletonList("kb2"));
+
+        final List<String> built = Collections.synchronizedList(new ArrayList<String>());
+        for (final int parallelism : new int[]{1, 4}) {
+            try {
+                KieBaseBuildScheduler.buildAll(includes, name -> {
+                    built.add(name);
+                    return name;
+                }, parallelism);
+                fail("Circular includes should be detected");
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("kb2"));
+            }
+        }
+        assertTrue(built.isEmpty());
+    }
+
+    @Test
+    public void testFailureCancelsPendingBuilds() throws Exception {
+        final Map<String, Collection<String>> includes = new LinkedHashMap<String, Collection<String>>();
+        includes.put("slow", Collections.<String>emptyList());
+        includes.put("dependent", Collections.singletonList("slow"));
+        includes.put("failing", Collections.<String>emptyList());
+
+        final CountDownLatch failed = new CountDownLatch(1);
+        final List<String> built = Collections.synchronizedList(new ArrayList<String>());
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            KieBaseBuildScheduler.buildAll(includes, name -> {
+                if (name.equals("failing")) {
+                    failed.countDown();
+                    throw new IllegalArgumentException("Compilation of " + name + " failed");
+                }
+                if (name.equals("slow")) {
+                    try {
+                        failed.await(10, TimeUnit.SECONDS);
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                built.add(name);
+                return name;
+            }, executor);
+            fail("The failure should be rethrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Compilation of failing failed", e.getMessage());
+            // the compilation already running when the failure happened is completed before returning
+            assertTrue(built.contains("slow"));
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertFalse(built.contains("dependent"));
+    }
+}
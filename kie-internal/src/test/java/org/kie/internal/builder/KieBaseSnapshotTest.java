@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.builder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.management.GAV;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class KieBaseSnapshotTest {
+
+    private final ReleaseId releaseId = new GAV("org.kie", "test", "1.0-SNAPSHOT");
+    private final String optionsKey = KieBaseSnapshot.computeOptionsKey(Collections.singletonMap("drools.eventProcessingMode", "cloud"));
+
+    @Test
+    public void testWriteAndOpen() throws Exception {
+        final Path file = Files.createTempDirectory("kie-snapshot").resolve("kjar.jar.kbase" + KieBaseSnapshot.FILE_EXTENSION);
+        final Map<String, byte[]> sections = new LinkedHashMap<String, byte[]>();
+        sections.put("classes", new byte[]{1, 2, 3});
+        sections.put("network", new byte[0]);
+        KieBaseSnapshot.write(file, releaseId, optionsKey, "content", sections);
+
+        final KieBaseSnapshot snapshot = KieBaseSnapshot.open(file, releaseId, optionsKey, "content");
+        assertEquals(sections.keySet(), snapshot.getSectionNames());
+        assertEquals("content", snapshot.getContentKey());
+        final ByteBuffer classes = snapshot.getSection("classes");
+        final byte[] bytes = new byte[classes.remaining()];
+        classes.get(bytes);
+        assertArrayEquals(new byte[]{1, 2, 3}, bytes);
+        assertEquals(0, snapshot.getSection("network").remaining());
+
+        assertNull(KieBaseSnapshot.open(file, new GAV("org.kie", "test", "1.1"), optionsKey, "content"));
+        assertNull(KieBaseSnapshot.open(file, releaseId, KieBaseSnapshot.computeOptionsKey(null), "content"));
+        assertNull(KieBaseSnapshot.open(file, releaseId, optionsKey, "changed"));
+    }
+
+    @Test
+    public void testContentKeyChangesWithKJarAndDependencies() throws Exception {
+        final Path folder = Files.createTempDirectory("kie-snapshot");
+        final File kjar = write(folder.resolve("kjar.jar"), "kjar");
+        final File dependency = write(folder.resolve("dependency.jar"), "dependency");
+
+        final String contentKey = KieBaseSnapshot.computeContentKey(kjar, Collections.singletonList(dependency));
+        assertEquals(contentKey, KieBaseSnapshot.computeContentKey(kjar, Collections.singletonList(dependency)));
+        assertNotEquals(contentKey, KieBaseSnapshot.computeContentKey(kjar, Collections.<File>emptyList()));
+
+        write(dependency.toPath(), "rebuilt dependency");
+        final String changedDependency = KieBaseSnapshot.computeContentKey(kjar, Collections.singletonList(dependency));
+        assertNotEquals(contentKey, changedDependency);
+
+        write(kjar.toPath(), "rebuilt kjar");
+        assertNotEquals(changedDependency, KieBaseSnapshot.computeContentKey(kjar, Collections.singletonList(dependency)));
+    }
+
+    @Test
+    public void testCorruptSnapshotIsIgnored() throws Exception {
+        final Path file = Files.createTempDirectory("kie-snapshot").resolve("kjar.jar.kbase" + KieBaseSnapshot.FILE_EXTENSION);
+        for (final int length : new int[]{-1, Integer.MAX_VALUE}) {
+            try (OutputStream os = Files.newOutputStream(file);
+                 DataOutputStream out = new DataOutputStream(os)) {
+                out.writeInt(0x4B425353);
+                out.writeInt(2);
+                out.writeInt(length);
+            }
+            assertNull(KieBaseSnapshot.open(file, releaseId, optionsKey, "content"));
+        }
+
+        final Map<String, byte[]> sections = Collections.singletonMap("classes", new byte[]{1, 2, 3});
+        KieBaseSnapshot.write(file, releaseId, optionsKey, "content", sections);
+        final byte[] bytes = Files.readAllBytes(file);
+        // corrupts the length of the only section
+        ByteBuffer.wrap(bytes).putInt(bytes.length - 7, -3);
+        Files.write(file, bytes);
+        assertNull(KieBaseSnapshot.open(file, releaseId, optionsKey, "content"));
+
+        Files.write(file, new byte[]{0x4B, 0x42});
+        assertNull(KieBaseSnapshot.open(file, releaseId, optionsKey, "content"));
+    }
+
+    private static File write(final Path path, final String content) throws Exception {
+        return Files.write(path, content.getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+}
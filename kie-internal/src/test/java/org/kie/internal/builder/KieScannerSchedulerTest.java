@@ -0,0 +1,193 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.builder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.kie.api.builder.KieScanner;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.event.kiescanner.KieScannerEventListener;
+import org.kie.api.management.GAV;
+import org.kie.api.runtime.KieContainerUpdateMode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KieScannerSchedulerTest {
+
+    private final KieScannerScheduler scheduler = new KieScannerScheduler();
+
+    @After
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testScannersOfSameArtifactShareCheck() throws Exception {
+        final AtomicInteger firstChecks = new AtomicInteger();
+        final AtomicInteger secondChecks = new AtomicInteger();
+        final CountingScanner first = new CountingScanner();
+        final CountingScanner second = new CountingScanner();
+        final CountingScanner otherRange = new CountingScanner();
+        final KieScannerScheduler.Registration registration = scheduler.schedule(releaseId("1.0"), first, 10, () -> firstChecks.incrementAndGet() > 0);
+        scheduler.schedule(releaseId("1.0"), second, 10, () -> secondChecks.incrementAndGet() > 0);
+        scheduler.schedule(releaseId("[1.0,2.0)"), otherRange, 10, () -> false);
+
+        assertTrue(first.scans.tryAcquire(5, TimeUnit.SECONDS));
+        assertTrue(second.scans.tryAcquire(5, TimeUnit.SECONDS));
+        assertEquals(0, secondChecks.get());
+
+        // the check is still performed for the remaining scanners
+        registration.cancel();
+        second.scans.drainPermits();
+        assertTrue(second.scans.tryAcquire(5, TimeUnit.SECONDS));
+        assertEquals(0, otherRange.scans.availablePermits());
+    }
+
+    @Test
+    public void testSharedCheckUsesShortestInterval() throws Exception {
+        final CountingScanner slow = new CountingScanner();
+        final CountingScanner quick = new CountingScanner();
+        final KieScannerScheduler.Registration slowRegistration = scheduler.schedule(releaseId("1.0"), slow, 60000, () -> true);
+        scheduler.schedule(releaseId("1.0"), quick, 10, () -> true);
+        assertTrue(slow.scans.tryAcquire(5, TimeUnit.SECONDS));
+        assertTrue(quick.scans.tryAcquire(5, TimeUnit.SECONDS));
+        slowRegistration.cancel();
+        quick.scans.drainPermits();
+        assertTrue(quick.scans.tryAcquire(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSlowScanDoesNotDelayOtherScanners() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountingScanner slow = new CountingScanner() {
+            @Override
+            public void scanNow() {
+                super.scanNow();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        final CountingScanner fast = new CountingScanner();
+        scheduler.schedule(releaseId("1.0"), slow, 10, () -> true);
+        assertTrue(slow.scans.tryAcquire(5, TimeUnit.SECONDS));
+
+        scheduler.schedule(new GAV("org.kie", "other", "1.0"), fast, 10, () -> true);
+        assertTrue(fast.scans.tryAcquire(5, TimeUnit.SECONDS));
+        assertTrue(fast.scans.tryAcquire(5, TimeUnit.SECONDS));
+        // the slow scanner is never scanned again while its scan is still running
+        assertEquals(0, slow.scans.availablePermits());
+        release.countDown();
+    }
+
+    @Test
+    public void testWatchUsesShortestDebounceAndStopsOnCancel() throws Exception {
+        final Path artifactFolder = Files.createTempDirectory("kie-artifact");
+        Files.createDirectory(artifactFolder.resolve("1.0"));
+        final CountingScanner quick = new CountingScanner();
+        final CountingScanner slow = new CountingScanner();
+        final KieScannerScheduler.Registration quickRegistration = scheduler.watch(releaseId("1.0"), quick, artifactFolder, 10);
+        final KieScannerScheduler.Registration slowRegistration = scheduler.watch(releaseId("1.0"), slow, artifactFolder, 60000);
+
+        Files.write(artifactFolder.resolve("1.0").resolve("test-1.0.jar"), new byte[]{1});
+        assertTrue(quick.scans.tryAcquire(10, TimeUnit.SECONDS));
+        assertTrue(slow.scans.tryAcquire(5, TimeUnit.SECONDS));
+
+        quickRegistration.cancel();
+        slowRegistration.cancel();
+        Files.createDirectory(artifactFolder.resolve("1.1"));
+        Files.write(artifactFolder.resolve("1.0").resolve("test-1.0.jar"), new byte[]{2});
+        assertFalse(quick.scans.tryAcquire(500, TimeUnit.MILLISECONDS));
+
+        // watching again registers the folders again
+        final CountingScanner again = new CountingScanner();
+        scheduler.watch(releaseId("1.0"), again, artifactFolder, 10);
+        Files.write(artifactFolder.resolve("1.1").resolve("test-1.1.jar"), new byte[]{1});
+        assertTrue(again.scans.tryAcquire(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSameArtifactInDifferentFolders() throws Exception {
+        final Path firstFolder = Files.createTempDirectory("kie-artifact");
+        final Path secondFolder = Files.createTempDirectory("kie-artifact");
+        final CountingScanner first = new CountingScanner();
+        final CountingScanner second = new CountingScanner();
+        scheduler.watch(releaseId("1.0"), first, firstFolder, 10);
+        scheduler.watch(releaseId("1.0"), second, secondFolder, 10);
+
+        Files.createDirectory(secondFolder.resolve("1.0"));
+        assertTrue(second.scans.tryAcquire(10, TimeUnit.SECONDS));
+        assertFalse(first.scans.tryAcquire(500, TimeUnit.MILLISECONDS));
+    }
+
+    private static ReleaseId releaseId(final String version) {
+        return new GAV("org.kie", "test", version);
+    }
+
+    private static class CountingScanner implements KieScanner {
+
+        final Semaphore scans = new Semaphore(0);
+
+        @Override
+        public void scanNow() {
+            scans.release();
+        }
+
+        @Override
+        public void start(final long pollingInterval) {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public void setUpdateMode(final KieContainerUpdateMode mode) {
+        }
+
+        @Override
+        public void addListener(final KieScannerEventListener listener) {
+        }
+
+        @Override
+        public void removeListener(final KieScannerEventListener listener) {
+        }
+
+        @Override
+        public Collection<KieScannerEventListener> getListeners() {
+            return Collections.emptyList();
+        }
+    }
+}
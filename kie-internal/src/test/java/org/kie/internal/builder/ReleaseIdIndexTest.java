@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.builder;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.management.GAV;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReleaseIdIndexTest {
+
+    @Test
+    public void testEquivalentVersionsAreKeptApart() {
+        final ReleaseIdIndex<String> index = new ReleaseIdIndex<String>();
+        index.put(releaseId("1.0"), "1.0");
+        index.put(releaseId("1.0.0"), "1.0.0");
+
+        assertEquals("1.0", index.get(releaseId("1.0")));
+        assertEquals("1.0.0", index.get(releaseId("1.0.0")));
+        assertNull(index.get(releaseId("1")));
+
+        assertEquals("1.0", index.remove(releaseId("1.0")));
+        assertNull(index.get(releaseId("1.0")));
+        assertEquals("1.0.0", index.get(releaseId("1.0.0")));
+    }
+
+    @Test
+    public void testLatestAndRelease() {
+        final ReleaseIdIndex<String> index = new ReleaseIdIndex<String>();
+        index.put(releaseId("1.0"), "1.0");
+        index.put(releaseId("1.1-SNAPSHOT"), "1.1-SNAPSHOT");
+        assertEquals("1.1-SNAPSHOT", index.get(releaseId(ReleaseIdIndex.LATEST)));
+        assertEquals("1.0", index.get(releaseId(ReleaseIdIndex.RELEASE)));
+
+        index.put(releaseId("1.2-snapshot"), "1.2-snapshot");
+        assertEquals("1.2-snapshot", index.get(releaseId(ReleaseIdIndex.LATEST)));
+        assertEquals("1.0", index.get(releaseId(ReleaseIdIndex.RELEASE)));
+    }
+
+    @Test
+    public void testReleaseAfterRemovals() {
+        final ReleaseIdIndex<String> index = new ReleaseIdIndex<String>();
+        index.put(releaseId("1.0"), "1.0");
+        index.put(releaseId("2.0"), "2.0");
+        index.put(releaseId("2.1-SNAPSHOT"), "2.1-SNAPSHOT");
+
+        index.remove(releaseId("2.0"));
+        assertEquals("1.0", index.get(releaseId(ReleaseIdIndex.RELEASE)));
+        index.remove(releaseId("1.0"));
+        assertNull(index.get(releaseId(ReleaseIdIndex.RELEASE)));
+        assertEquals("2.1-SNAPSHOT", index.get(releaseId(ReleaseIdIndex.LATEST)));
+    }
+
+    @Test
+    public void testRanges() {
+        final ReleaseIdIndex<String> index = new ReleaseIdIndex<String>();
+        for (final String version : new String[]{"1.0", "1.0.0", "1.5", "2.0", "2.0.1", "3.0"}) {
+            index.put(releaseId(version), version);
+        }
+
+        assertEquals("1.5", index.get(releaseId("[1.0,2.0)")));
+        assertEquals("2.0", index.get(releaseId("[1.0,2.0]")));
+        assertEquals("2.0.1", index.get(releaseId("(1.0,2.0.1]")));
+        assertEquals("3.0", index.get(releaseId("[2.0,)")));
+        assertEquals("1.0.0", index.get(releaseId("(,1.0]")));
+        assertNull(index.get(releaseId("(,1.0)")));
+        assertEquals("1.5", index.get(releaseId("[1.5]")));
+        assertEquals("3.0", index.get(releaseId("[1.0,1.5],[3.0,)")));
+        assertEquals("1.5", index.get(releaseId("[1.0,1.5],(3.0,)")));
+        assertNull(index.get(releaseId("(1.5,1.5]")));
+        assertNull(index.get(releaseId("[2.0,1.0]")));
+    }
+
+    @Test
+    public void testParseRange() {
+        final List<ReleaseIdIndex.Restriction> restrictions = ReleaseIdIndex.parseRange(" [1.0,2.0) , [3.0,) ");
+        assertEquals(2, restrictions.size());
+        assertTrue(ReleaseIdIndex.isRange("[1.0]"));
+        assertTrue(ReleaseIdIndex.isRange("(,1.0]"));
+        assertFalse(ReleaseIdIndex.isRange("1.0"));
+
+        for (final String invalid : new String[]{"[1.0", "(1.0)", "[]", "[1.0,2.0]x"}) {
+            try {
+                ReleaseIdIndex.parseRange(invalid);
+                fail("Range " + invalid + " should be invalid");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testRemovingLastVersionRemovesArtifact() {
+        final ReleaseIdIndex<String> index = new ReleaseIdIndex<String>();
+        index.put(releaseId("1.0"), "1.0");
+        index.put(new GAV("org.kie", "other", "1.0"), "other");
+        assertFalse(index.isEmpty());
+
+        index.remove(releaseId("1.0"));
+        assertNull(index.get(releaseId(ReleaseIdIndex.LATEST)));
+        index.remove(new GAV("org.kie", "other", "1.0"));
+        assertTrue(index.isEmpty());
+        assertNull(index.remove(releaseId("1.0")));
+    }
+
+    private static ReleaseId releaseId(final String version) {
+        return new GAV("org.kie", "test", version);
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.runtime;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncKieSessionTest {
+
+    @Test
+    public void testInsertsAreCoalesced() throws Exception {
+        final SessionStub stub = new SessionStub();
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        final AsyncKieSession session = new AsyncKieSession(stub.session, tasks::add);
+
+        final CompletableFuture<FactHandle> a = session.insert("a");
+        final CompletableFuture<FactHandle> b = session.insert("b");
+        final CompletableFuture<Integer> fired = session.fireAllRules();
+        assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+
+        assertEquals(1, stub.insertAllCalls.get());
+        assertSame(stub.handles.get("a"), a.get());
+        assertSame(stub.handles.get("b"), b.get());
+        assertEquals(Integer.valueOf(2), fired.get());
+    }
+
+    @Test
+    public void testFailedBatchIsInsertedOneByOne() throws Exception {
+        final SessionStub stub = new SessionStub();
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        final AsyncKieSession session = new AsyncKieSession(stub.session, tasks::add);
+
+        final CompletableFuture<FactHandle> a = session.insert("a");
+        final CompletableFuture<FactHandle> b = session.insert("b");
+        final CompletableFuture<FactHandle> boom = session.insert("boom");
+        final CompletableFuture<FactHandle> c = session.insert("c");
+        tasks.remove(0).run();
+
+        assertSame(stub.handles.get("a"), a.get());
+        assertSame(stub.handles.get("b"), b.get());
+        assertFailed(boom);
+        assertSame(stub.handles.get("c"), c.get());
+        assertEquals(3, stub.handles.size());
+    }
+
+    @Test
+    public void testFailedInsertOfFactAlreadyInSessionFails() throws Exception {
+        final SessionStub stub = new SessionStub();
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        final AsyncKieSession session = new AsyncKieSession(stub.session, tasks::add);
+        final Object rejected = "rejected";
+        stub.session.insert(rejected);
+        stub.rejected.add(rejected);
+
+        final CompletableFuture<FactHandle> boom = session.insert("boom");
+        final CompletableFuture<FactHandle> insert = session.insert(rejected);
+        tasks.remove(0).run();
+
+        assertFailed(boom);
+        try {
+            insert.get();
+            fail("The insert of a fact already in the session should fail when the session rejects it");
+        } catch (ExecutionException e) {
+            assertEquals("rejected", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testNothingRunsAfterDispose() throws Exception {
+        final ExecutorService submitters = Executors.newFixedThreadPool(4);
+        try {
+            for (int run = 0; run < 200; run++) {
+                final SessionStub stub = new SessionStub();
+                final AsyncKieSession session = new AsyncKieSession(stub.session);
+                final List<CompletableFuture<?>> futures = new ArrayList<CompletableFuture<?>>();
+                final CountDownLatch start = new CountDownLatch(1);
+                final List<Future<?>> submitted = new ArrayList<Future<?>>();
+                for (int i = 0; i < 4; i++) {
+                    submitted.add(submitters.submit(() -> {
+                        start.await();
+                        for (int j = 0; j < 50; j++) {
+                            final CompletableFuture<Integer> future = session.fireAllRules();
+                            synchronized (futures) {
+                                futures.add(future);
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                final CompletableFuture<Void> disposed = session.dispose();
+                for (final Future<?> future : submitted) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+                disposed.get(10, TimeUnit.SECONDS);
+                for (final CompletableFuture<?> future : futures) {
+                    try {
+                        future.get(10, TimeUnit.SECONDS);
+                    } catch (ExecutionException e) {
+                        assertTrue(e.getCause() instanceof IllegalStateException);
+                    }
+                }
+                assertFalse(stub.usedAfterDispose.get());
+            }
+        } finally {
+            submitters.shutdownNow();
+        }
+    }
+
+    private static void assertFailed(final CompletableFuture<?> future) throws Exception {
+        try {
+            future.get();
+            fail("The insert should have failed");
+        } catch (ExecutionException e) {
+            assertEquals("boom", e.getCause().getMessage());
+        }
+    }
+
+    private static class SessionStub {
+
+        final Map<Object, FactHandle> handles = new IdentityHashMap<Object, FactHandle>();
+        final AtomicInteger insertAllCalls = new AtomicInteger();
+        final AtomicBoolean disposed = new AtomicBoolean();
+        final AtomicBoolean usedAfterDispose = new AtomicBoolean();
+        final List<Object> rejected = new ArrayList<Object>();
+
+        final KieSession session = (KieSession) Proxy.newProxyInstance(KieSession.class.getClassLoader(), new Class<?>[]{KieSession.class}, (proxy, method, args) -> {
+            if (disposed.get()) {
+                usedAfterDispose.set(true);
+            }
+            switch (method.getName()) {
+                case "insertAll":
+                    insertAllCalls.incrementAndGet();
+                    final Object[] objects = (Object[]) args[0];
+                    final FactHandle[] result = new FactHandle[objects.length];
+                    for (int i = 0; i < objects.length; i++) {
+                        result[i] = insert(objects[i]);
+                    }
+                    return result;
+                case "insert":
+                    return insert(args[0]);
+                case "getFactHandle":
+                    return handles.get(args[0]);
+                case "fireAllRules":
+                    return handles.size();
+                case "dispose":
+                    disposed.set(true);
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        private FactHandle insert(final Object object) {
+            if ("boom".equals(object)) {
+                throw new IllegalStateException("boom");
+            }
+            if (rejected.contains(object)) {
+                throw new IllegalStateException("rejected");
+            }
+            // like in a session, inserting again a fact returns its existing handle
+            if (handles.containsKey(object)) {
+                return handles.get(object);
+            }
+            final FactHandle handle = (FactHandle) Proxy.newProxyInstance(FactHandle.class.getClassLoader(), new Class<?>[]{FactHandle.class}, (proxy, method, args) -> {
+                throw new UnsupportedOperationException(method.getName());
+            });
+            handles.put(object, handle);
+            return handle;
+        }
+    }
+}
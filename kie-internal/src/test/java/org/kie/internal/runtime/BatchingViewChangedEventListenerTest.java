@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.runtime;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.kie.api.runtime.rule.FactHandle;
+import org.kie.api.runtime.rule.Row;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BatchingViewChangedEventListenerTest {
+
+    private final List<BatchingViewChangedEventListener.ChangeSet> changeSets = Collections.synchronizedList(new ArrayList<BatchingViewChangedEventListener.ChangeSet>());
+    private final BatchingViewChangedEventListener listener = new BatchingViewChangedEventListener(changeSets::add, "$p");
+
+    @Test
+    public void testRowsAreCopied() {
+        final FactHandle handle = newFactHandle();
+        final MutableRow row = new MutableRow("$p", "Mario", handle);
+        listener.rowInserted(row);
+        // the engine reuses its rows after the notification
+        row.values.put("$p", "Luigi");
+        row.handles.put("$p", newFactHandle());
+        listener.flush();
+
+        assertEquals(1, changeSets.size());
+        final Row inserted = changeSets.get(0).getInserted().get(0);
+        assertEquals("Mario", inserted.get("$p"));
+        assertSame(handle, inserted.getFactHandle("$p"));
+    }
+
+    @Test
+    public void testRowsAreCoalescedByFactHandle() {
+        final FactHandle mario = newFactHandle();
+        final FactHandle luigi = newFactHandle();
+        listener.rowInserted(new MutableRow("$p", "Mario", mario));
+        listener.rowUpdated(new MutableRow("$p", "Mario 2", mario));
+        listener.rowInserted(new MutableRow("$p", "Luigi", luigi));
+        listener.rowDeleted(new MutableRow("$p", "Luigi", luigi));
+        listener.flush();
+
+        assertEquals(1, changeSets.size());
+        final BatchingViewChangedEventListener.ChangeSet changeSet = changeSets.get(0);
+        assertEquals(1, changeSet.getInserted().size());
+        assertEquals("Mario 2", changeSet.getInserted().get(0).get("$p"));
+        assertTrue(changeSet.getUpdated().isEmpty());
+        assertTrue(changeSet.getDeleted().isEmpty());
+
+        listener.rowDeleted(new MutableRow("$p", "Mario 2", mario));
+        listener.rowInserted(new MutableRow("$p", "Mario 3", mario));
+        listener.flush();
+        assertEquals(2, changeSets.size());
+        assertEquals("Mario 3", changeSets.get(1).getUpdated().get(0).get("$p"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIdentifiersAreRequired() {
+        new BatchingViewChangedEventListener(changeSets::add);
+    }
+
+    @Test
+    public void testFlushIntervalCanBeChanged() throws Exception {
+        listener.setFlushInterval(60000).setFlushInterval(10);
+        listener.rowInserted(new MutableRow("$p", "Mario", newFactHandle()));
+        final long start = System.currentTimeMillis();
+        while (changeSets.isEmpty() && System.currentTimeMillis() - start < 10000) {
+            Thread.sleep(5);
+        }
+        listener.close();
+        assertEquals(1, changeSets.size());
+    }
+
+    @Test
+    public void testDeliveriesAreSerialized() throws Exception {
+        final CountDownLatch delivering = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        final List<Object> delivered = Collections.synchronizedList(new ArrayList<Object>());
+        final BatchingViewChangedEventListener serial = new BatchingViewChangedEventListener(changeSet -> {
+            if (active.incrementAndGet() > 1) {
+                overlapped.set(true);
+            }
+            delivering.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.add(changeSet.getInserted().get(0).get("$p"));
+            active.decrementAndGet();
+        }, "$p");
+
+        final ExecutorService flushers = Executors.newFixedThreadPool(2);
+        try {
+            serial.rowInserted(new MutableRow("$p", "Mario", newFactHandle()));
+            // e.g. the periodic flush, blocked while delivering
+            final Future<?> first = flushers.submit(serial::flush);
+            assertTrue(delivering.await(10, TimeUnit.SECONDS));
+
+            serial.rowInserted(new MutableRow("$p", "Luigi", newFactHandle()));
+            final Future<?> second = flushers.submit(serial::flush);
+            Thread.sleep(100);
+            assertFalse(second.isDone());
+
+            release.countDown();
+            first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS);
+        } finally {
+            flushers.shutdownNow();
+        }
+        assertFalse(overlapped.get());
+        assertEquals(Arrays.asList("Mario", "Luigi"), delivered);
+    }
+
+    private static FactHandle newFactHandle() {
+        return (FactHandle) Proxy.newProxyInstance(FactHandle.class.getClassLoader(), new Class<?>[]{FactHandle.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static class MutableRow implements Row {
+
+        private final Map<String, Object> values = new HashMap<String, Object>();
+        private final Map<String, FactHandle> handles = new HashMap<String, FactHandle>();
+
+        private MutableRow(final String identifier, final Object value, final FactHandle handle) {
+            values.put(identifier, value);
+            handles.put(identifier, handle);
+        }
+
+        @Override
+        public Object get(final String identifier) {
+            return values.get(identifier);
+        }
+
+        @Override
+        public FactHandle getFactHandle(final String identifier) {
+            return handles.get(identifier);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.runtime;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Test;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.EntryPoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EntryPointSubscriberTest {
+
+    private final List<Object> inserted = Collections.synchronizedList(new ArrayList<Object>());
+    private final List<Long> requests = Collections.synchronizedList(new ArrayList<Long>());
+
+    private final EntryPoint entryPoint = (EntryPoint) Proxy.newProxyInstance(EntryPoint.class.getClassLoader(), new Class<?>[]{EntryPoint.class}, (proxy, method, args) -> {
+        switch (method.getName()) {
+            case "insertAll":
+                inserted.addAll(Arrays.asList((Object[]) args[0]));
+                return null;
+            case "getEntryPointId":
+                return "test";
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    });
+
+    @Test
+    public void testFactsAreInsertedInBatches() throws Exception {
+        final EntryPointSubscriber<Integer> subscriber = new EntryPointSubscriber<Integer>(entryPoint, 2);
+        subscriber.onSubscribe(newSubscription());
+        assertEquals(Collections.singletonList(2L), requests);
+
+        subscriber.onNext(1);
+        subscriber.onNext(2);
+        assertEquals(Arrays.<Object>asList(1, 2), inserted);
+        assertEquals(Arrays.asList(2L, 2L), requests);
+
+        subscriber.onNext(3);
+        subscriber.onComplete();
+        subscriber.getCompletion().get(10, TimeUnit.SECONDS);
+        assertEquals(Arrays.<Object>asList(1, 2, 3), inserted);
+        assertEquals(3, subscriber.getInsertedCount());
+    }
+
+    @Test
+    public void testAgendaListenerIsRemovedOnTermination() throws Exception {
+        final List<Object> listeners = Collections.synchronizedList(new ArrayList<Object>());
+        final KieSession session = (KieSession) Proxy.newProxyInstance(KieSession.class.getClassLoader(), new Class<?>[]{KieSession.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "addEventListener":
+                    listeners.add(args[0]);
+                    return null;
+                case "removeEventListener":
+                    listeners.remove(args[0]);
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        final EntryPointSubscriber.AgendaSizeCondition condition = EntryPointSubscriber.agendaSizeAbove(session, 10);
+        assertEquals(1, listeners.size());
+        assertSame(condition, listeners.get(0));
+
+        final EntryPointSubscriber<Integer> subscriber = new EntryPointSubscriber<Integer>(entryPoint, 2).setBackpressure(condition, 1);
+        subscriber.onSubscribe(newSubscription());
+        subscriber.cancel();
+        subscriber.getCompletion().get(10, TimeUnit.SECONDS);
+        assertEquals(Collections.emptyList(), listeners);
+    }
+
+    @Test
+    public void testTerminationWhileOverloaded() throws Exception {
+        final EntryPointSubscriber<Integer> subscriber = new EntryPointSubscriber<Integer>(entryPoint, 1);
+        final AtomicInteger checks = new AtomicInteger();
+        final BooleanSupplier cancellingCondition = () -> {
+            if (checks.incrementAndGet() == 2) {
+                // the subscriber terminates while the next batch is being requested
+                subscriber.cancel();
+                return true;
+            }
+            return false;
+        };
+        subscriber.setBackpressure(cancellingCondition, 1);
+        subscriber.onSubscribe(newSubscription());
+
+        subscriber.onNext(1);
+        subscriber.getCompletion().get(10, TimeUnit.SECONDS);
+        assertEquals(Collections.<Object>singletonList(1), inserted);
+        assertEquals(Collections.singletonList(1L), requests);
+        assertTrue(subscriber.getCompletion().isDone());
+    }
+
+    private EntryPointSubscriber.Subscription newSubscription() {
+        return new EntryPointSubscriber.Subscription() {
+            @Override
+            public void request(final long n) {
+                requests.add(n);
+            }
+
+            @Override
+            public void cancel() {
+            }
+        };
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.runtime;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SlotGlobalsTest {
+
+    @Test
+    public void testSlotsAndNames() {
+        final SlotGlobals globals = new SlotGlobals(new SlotLayout("list", "counter"));
+        assertEquals(1, globals.getSlot("counter"));
+        assertEquals(-1, globals.getSlot("undeclared"));
+
+        globals.set("counter", 1);
+        globals.set(0, "value");
+        globals.set("undeclared", "other");
+        assertEquals(1, globals.get(1));
+        assertEquals("value", globals.get("list"));
+        assertEquals("other", globals.get("undeclared"));
+        assertEquals(new HashSet<String>(Arrays.asList("list", "counter", "undeclared")), new HashSet<String>(globals.getGlobalKeys()));
+
+        globals.set("undeclared", null);
+        globals.set("counter", null);
+        assertNull(globals.get("undeclared"));
+        assertEquals(new HashSet<String>(Arrays.asList("list")), new HashSet<String>(globals.getGlobalKeys()));
+    }
+
+    @Test
+    public void testDelegate() {
+        final SlotGlobals delegate = new SlotGlobals(SlotLayout.EMPTY);
+        delegate.set("counter", 1);
+        final SlotGlobals globals = new SlotGlobals(new SlotLayout("counter"));
+        globals.setDelegate(delegate);
+        assertEquals(1, globals.get(0));
+        globals.set(0, 2);
+        assertEquals(2, globals.get("counter"));
+    }
+
+    @Test
+    public void testEnvironmentSlots() {
+        final SlotEnvironment environment = new SlotEnvironment(new SlotLayout("drools.globals", "drools.calendars"));
+        assertEquals(1, environment.getSlot("drools.calendars"));
+        environment.set(1, "calendars");
+        environment.set("custom", "value");
+        assertEquals("calendars", environment.get("drools.calendars"));
+        assertEquals("value", environment.get("custom"));
+        assertNull(environment.get(0));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final SlotGlobals globals = new SlotGlobals(new SlotLayout("counter"));
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final Future<?>[] futures = new Future<?>[4];
+            for (int t = 0; t < futures.length; t++) {
+                final int thread = t;
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 1000; i++) {
+                        globals.set("counter", i);
+                        globals.set("other" + thread + "-" + i, i);
+                        globals.get(0);
+                        globals.getGlobalKeys();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (final Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(4001, globals.getGlobalKeys().size());
+        assertEquals(999, globals.get("other3-999"));
+    }
+}
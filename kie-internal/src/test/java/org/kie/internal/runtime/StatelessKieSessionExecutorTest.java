@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.runtime;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.kie.api.command.Command;
+import org.kie.api.runtime.StatelessKieSession;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StatelessKieSessionExecutorTest {
+
+    private final AtomicInteger createdSessions = new AtomicInteger();
+    private final Set<Object> executedFacts = ConcurrentHashMap.newKeySet();
+
+    @Test
+    public void testExecuteFactBatches() {
+        final StatelessKieSessionExecutor executor = new StatelessKieSessionExecutor(this::newSession, 2);
+        try {
+            final List<List<Integer>> batches = new ArrayList<List<Integer>>();
+            for (int i = 0; i < 20; i++) {
+                batches.add(Arrays.asList(2 * i, 2 * i + 1));
+            }
+            executor.executeFactBatches(batches);
+            assertEquals(40, executedFacts.size());
+            assertTrue(createdSessions.get() <= 2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testExecuteCommandsKeepsOrder() {
+        final StatelessKieSessionExecutor executor = new StatelessKieSessionExecutor(this::newSession, 4);
+        try {
+            final List<EchoCommand> commands = new ArrayList<EchoCommand>();
+            for (int i = 0; i < 100; i++) {
+                commands.add(new EchoCommand("command " + i));
+            }
+            final List<String> results = executor.executeCommands(commands);
+            assertEquals(100, results.size());
+            for (int i = 0; i < 100; i++) {
+                assertEquals("command " + i, results.get(i));
+            }
+            assertTrue(createdSessions.get() <= 4);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailureIsRethrown() {
+        final StatelessKieSessionExecutor executor = new StatelessKieSessionExecutor(this::newSession, 2);
+        try {
+            executor.executeCommands(Arrays.asList(new EchoCommand("ok"), new EchoCommand(null)));
+            fail("The failure of the command should have been rethrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("null command", e.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(Collections.emptySet(), executedFacts);
+    }
+
+    private StatelessKieSession newSession() {
+        createdSessions.incrementAndGet();
+        return (StatelessKieSession) Proxy.newProxyInstance(StatelessKieSession.class.getClassLoader(), new Class<?>[]{StatelessKieSession.class}, (proxy, method, args) -> {
+            if (!method.getName().equals("execute")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            if (args[0] instanceof EchoCommand) {
+                final String value = ((EchoCommand) args[0]).value;
+                if (value == null) {
+                    throw new IllegalArgumentException("null command");
+                }
+                return value;
+            }
+            for (final Object fact : (Iterable<?>) args[0]) {
+                executedFacts.add(fact);
+            }
+            return null;
+        });
+    }
+
+    private static class EchoCommand implements Command<String> {
+
+        private final String value;
+
+        private EchoCommand(final String value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ChainedPropertiesTest {
+
+    private static final String CONF = "chained.test.conf";
+
+    @After
+    public void clearCache() {
+        ChainedProperties.clearCache();
+    }
+
+    @Test
+    public void testPriority() throws Exception {
+        final File first = confFolder("kie." + CONF, "a = first\nb = first\n");
+        final File second = confFolder("kie." + CONF, "a = second\nc = second\n");
+        final File defaults = confFolder("kie.default." + CONF, "a = default\nc = default\nd = default\n");
+        final ChainedProperties chained = ChainedProperties.getChainedProperties(CONF, classLoader(first, second, defaults));
+
+        assertEquals("first", chained.getProperty("a", null));
+        assertEquals("first", chained.getProperty("b", null));
+        assertEquals("second", chained.getProperty("c", null));
+        assertEquals("default", chained.getProperty("d", null));
+        assertNull(chained.getProperty("e", null));
+        assertEquals("none", chained.getProperty("e", "none"));
+
+        final Properties added = new Properties();
+        added.setProperty("a", "added");
+        chained.addProperties(added);
+        assertEquals("added", chained.getProperty("a", null));
+        assertEquals("first", chained.getProperty("b", null));
+    }
+
+    @Test
+    public void testMapStartsWith() throws Exception {
+        final File first = confFolder("kie." + CONF, "drools.dialect.java = first\ndrools.dialect.java.compiler = first\ndroolsx = first\n");
+        final File defaults = confFolder("kie.default." + CONF, "drools.dialect.java = default\ndrools.dialect.mvel = default\ndrools = default\n");
+        final ChainedProperties chained = ChainedProperties.getChainedProperties(CONF, classLoader(first, defaults));
+        final Properties added = new Properties();
+        added.setProperty("drools.dialect.mvel", "added");
+        chained.addProperties(added);
+
+        final Map<String, String> all = new HashMap<String, String>();
+        chained.mapStartsWith(all, "drools.dialect", true);
+        final Map<String, String> expected = new HashMap<String, String>();
+        expected.put("drools.dialect.java", "first");
+        expected.put("drools.dialect.java.compiler", "first");
+        expected.put("drools.dialect.mvel", "added");
+        assertEquals(expected, all);
+
+        final Map<String, String> direct = new HashMap<String, String>();
+        chained.mapStartsWith(direct, "drools.dialect", false);
+        expected.remove("drools.dialect.java.compiler");
+        assertEquals(expected, direct);
+    }
+
+    @Test
+    public void testCacheIsPerClassLoader() throws Exception {
+        final File folder = confFolder("kie." + CONF, "a = old\n");
+        final ClassLoader classLoader = classLoader(folder);
+        assertEquals("old", new ChainedProperties(CONF, classLoader, true).getProperty("a", null));
+
+        writeConf(folder, "kie." + CONF, "a = new\n");
+        assertEquals("old", new ChainedProperties(CONF, classLoader, true).getProperty("a", null));
+        assertEquals("new", new ChainedProperties(CONF, classLoader(folder), true).getProperty("a", null));
+        assertEquals("new", new ChainedProperties(CONF, classLoader, false).getProperty("a", null));
+
+        ChainedProperties.clearCache();
+        assertEquals("new", new ChainedProperties(CONF, classLoader, true).getProperty("a", null));
+    }
+
+    @Test
+    public void testCloneSharesClasspathProperties() throws Exception {
+        final ChainedProperties chained = ChainedProperties.getChainedProperties(CONF, classLoader(confFolder("kie." + CONF, "a = first\n")));
+        final ChainedProperties clone = chained.clone();
+        final Properties added = new Properties();
+        added.setProperty("a", "added");
+        clone.addProperties(added);
+
+        assertEquals("first", chained.getProperty("a", null));
+        assertEquals("added", clone.getProperty("a", null));
+    }
+
+    private static File confFolder(final String fileName, final String content) throws IOException {
+        final File folder = Files.createTempDirectory("kie-conf").toFile();
+        writeConf(folder, fileName, content);
+        return folder;
+    }
+
+    private static void writeConf(final File folder, final String fileName, final String content) throws IOException {
+        final File conf = new File(folder, "META-INF/" + fileName);
+        conf.getParentFile().mkdirs();
+        Files.write(conf.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ClassLoader classLoader(final File... folders) throws IOException {
+        final URL[] urls = new URL[folders.length];
+        for (int i = 0; i < folders.length; i++) {
+            urls[i] = folders[i].toURI().toURL();
+        }
+        return new URLClassLoader(urls, null);
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2018 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.internal.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CompositeClassLoaderTest {
+
+    @Test
+    public void testMissCachedWhileAddingClassLoaderIsDiscarded() throws Exception {
+        final CompositeClassLoader composite = new CompositeClassLoader();
+        composite.setCachingEnabled(true);
+        final BlockingClassLoader blocking = new BlockingClassLoader();
+        composite.addClassLoader(blocking);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Class<?>> staleLoad = executor.submit(() -> loadOrNull(composite, ArrayList.class.getName()));
+            assertTrue(blocking.entered.await(10, TimeUnit.SECONDS));
+
+            // the running lookup doesn't see the new child and will cache a miss
+            composite.addClassLoader(new KnownClassesClassLoader(ArrayList.class));
+            blocking.release.countDown();
+            assertNull(staleLoad.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertSame(ArrayList.class, composite.loadClass(ArrayList.class.getName()));
+    }
+
+    @Test
+    public void testConcurrentAddClassLoaderAndLoad() throws Exception {
+        final Class<?>[] classes = {ArrayList.class, LinkedList.class, HashMap.class, TreeMap.class};
+        final CompositeClassLoader composite = new CompositeClassLoader();
+        composite.setCachingEnabled(true);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> loads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                loads.add(executor.submit(() -> {
+                    for (int j = 0; j < 10000; j++) {
+                        loadOrNull(composite, classes[j % classes.length].getName());
+                    }
+                }));
+            }
+            for (final Class<?> cls : classes) {
+                composite.addClassLoaderToEnd(new KnownClassesClassLoader(cls));
+            }
+            for (final Future<?> load : loads) {
+                load.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (final Class<?> cls : classes) {
+            assertSame(cls, composite.loadClass(cls.getName()));
+        }
+    }
+
+    @Test
+    public void testClassDefinedLaterByFastClassLoaderIsFound() throws Exception {
+        final CompositeClassLoader composite = new CompositeClassLoader();
+        composite.setCachingEnabled(true);
+        final MapClassLoader child = new MapClassLoader();
+        composite.addClassLoader(child);
+
+        assertNull(loadOrNull(composite, "org.kie.generated.Rule0"));
+        assertNull(loadOrNull(composite, "org.kie.generated.Rule0"));
+        assertEquals(1, composite.getMonitor().getNegativeCacheHits());
+
+        child.classes.put("org.kie.generated.Rule0", ArrayList.class);
+        assertSame(ArrayList.class, composite.loadClass("org.kie.generated.Rule0"));
+        assertEquals(0, composite.getMonitor().getNegativeCacheSize());
+    }
+
+    @Test
+    public void testRegisteredMonitorFollowsCaching() throws Exception {
+        final CompositeClassLoader composite = new CompositeClassLoader();
+        composite.addClassLoader(new KnownClassesClassLoader(ArrayList.class));
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName("org.kie:type=CompositeClassLoader,name=test");
+
+        composite.registerMonitor(name);
+        try {
+            assertEquals(0L, server.getAttribute(name, "SuccessfulCalls"));
+            composite.setCachingEnabled(true);
+            composite.loadClass(ArrayList.class.getName());
+            composite.loadClass(ArrayList.class.getName());
+            assertEquals(1L, server.getAttribute(name, "SuccessfulCalls"));
+            assertEquals(1L, server.getAttribute(name, "CacheHits"));
+        } finally {
+            composite.unregisterMonitor();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testSplitPackageKeepsChildOrder() throws Exception {
+        final CountingClassLoader first = new CountingClassLoader(jar(Shared.class));
+        final CountingClassLoader second = new CountingClassLoader(jar(Shared.class, OnlyInSecond.class, Test.class));
+        final CompositeClassLoader composite = new CompositeClassLoader();
+        composite.setPackageIndexEnabled(true);
+        composite.addClassLoaderToEnd(first);
+        composite.addClassLoaderToEnd(second);
+
+        assertSame(second, composite.loadClass(OnlyInSecond.class.getName()).getClassLoader());
+        final int lookups = first.lookups.get();
+        assertSame(second, composite.loadClass(Test.class.getName()).getClassLoader());
+        assertEquals(lookups, first.lookups.get());
+        assertSame(first, composite.loadClass(Shared.class.getName()).getClassLoader());
+        assertSame(second, composite.loadClass(OnlyInSecond.class.getName()).getClassLoader());
+    }
+
+    @Test
+    public void testPackageNotOnlyInJarsKeepsChildOrder() throws Exception {
+        final File folder = Files.createTempDirectory("kie-classes").toFile();
+        final String path = Shared.class.getName().replace('.', '/') + ".class";
+        final File classFile = new File(folder, path);
+        classFile.getParentFile().mkdirs();
+        try (InputStream in = Shared.class.getClassLoader().getResourceAsStream(path)) {
+            Files.copy(in, classFile.toPath());
+        }
+        final URLClassLoader first = new URLClassLoader(new URL[]{folder.toURI().toURL()}, null);
+        final CompositeClassLoader composite = new CompositeClassLoader();
+        composite.setPackageIndexEnabled(true);
+        composite.addClassLoaderToEnd(first);
+        composite.addClassLoaderToEnd(new CountingClassLoader(jar(Shared.class, OnlyInSecond.class)));
+
+        composite.loadClass(OnlyInSecond.class.getName());
+        assertSame(first, composite.loadClass(Shared.class.getName()).getClassLoader());
+    }
+
+    @Test
+    public void testPackageLoadableByParentKeepsChildOrder() throws Exception {
+        final ClassLoader parent = new KnownClassesClassLoader(Shared.class);
+        final URLClassLoader first = new URLClassLoader(new URL[]{jar(Test.class)}, parent);
+        final CountingClassLoader second = new CountingClassLoader(jar(Shared.class, OnlyInSecond.class));
+        final CompositeClassLoader composite = new CompositeClassLoader();
+        composite.setPackageIndexEnabled(true);
+        composite.addClassLoaderToEnd(first);
+        composite.addClassLoaderToEnd(second);
+
+        assertSame(second, composite.loadClass(OnlyInSecond.class.getName()).getClassLoader());
+        assertSame(Shared.class, composite.loadClass(Shared.class.getName()));
+    }
+
+    @Test
+    public void testMissingResourcesAreSearchedAgain() throws Exception {
+        final File folder = Files.createTempDirectory("kie-resources").toFile();
+        final CompositeClassLoader composite = new CompositeClassLoader();
+        composite.setPackageIndexEnabled(true);
+        composite.addClassLoader(new URLClassLoader(new URL[]{folder.toURI().toURL()}, null));
+
+        assertFalse(composite.getResources("rules.drl").hasMoreElements());
+        Files.write(new File(folder, "rules.drl").toPath(), "package org.test".getBytes(StandardCharsets.UTF_8));
+        assertTrue(composite.getResources("rules.drl").hasMoreElements());
+    }
+
+    @Test
+    public void testResourcesDefinedLaterAreFound() throws Exception {
+        final File first = Files.createTempDirectory("kie-resources").toFile();
+        final File second = Files.createTempDirectory("kie-resources").toFile();
+        final CompositeClassLoader composite = new CompositeClassLoader();
+        composite.setPackageIndexEnabled(true);
+        composite.addClassLoaderToEnd(new URLClassLoader(new URL[]{first.toURI().toURL()}, null));
+        composite.addClassLoaderToEnd(new URLClassLoader(new URL[]{second.toURI().toURL()}, null));
+
+        Files.write(new File(second, "rules.drl").toPath(), "package org.test".getBytes(StandardCharsets.UTF_8));
+        assertEquals(1, Collections.list(composite.getResources("rules.drl")).size());
+        Files.write(new File(first, "rules.drl").toPath(), "package org.test".getBytes(StandardCharsets.UTF_8));
+        assertEquals(2, Collections.list(composite.getResources("rules.drl")).size());
+    }
+
+    private static URL jar(final Class<?>... classes) throws IOException {
+        final File jar = File.createTempFile("kie-classes", ".jar");
+        jar.deleteOnExit();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (final Class<?> cls : classes) {
+                final String path = cls.getName().replace('.', '/') + ".class";
+                out.putNextEntry(new JarEntry(path));
+                try (InputStream in = cls.getClassLoader().getResourceAsStream(path)) {
+                    final byte[] buffer = new byte[4096];
+                    for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                        out.write(buffer, 0, read);
+                    }
+                }
+                out.closeEntry();
+            }
+        }
+        return jar.toURI().toURL();
+    }
+
+    private static Class<?> loadOrNull(final ClassLoader classLoader, final String name) {
+        try {
+            return classLoader.loadClass(name);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    public static class Shared {
+    }
+
+    public static class OnlyInSecond {
+    }
+
+    private static class CountingClassLoader extends URLClassLoader {
+
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        private CountingClassLoader(final URL jar) {
+            super(new URL[]{jar}, null);
+        }
+
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+            lookups.incrementAndGet();
+            return super.loadClass(name, resolve);
+        }
+    }
+
+    private static class KnownClassesClassLoader extends ClassLoader {
+
+        private final Map<String, Class<?>> classes = new HashMap<>();
+
+        private KnownClassesClassLoader(final Class<?>... classes) {
+            super(null);
+            for (final Class<?> cls : classes) {
+                this.classes.put(cls.getName(), cls);
+            }
+        }
+
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+            final Class<?> cls = classes.get(name);
+            if (cls == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return cls;
+        }
+    }
+
+    private static class BlockingClassLoader extends ClassLoader {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private BlockingClassLoader() {
+            super(null);
+        }
+
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new ClassNotFoundException(name);
+        }
+    }
+
+    private static class MapClassLoader extends ClassLoader implements FastClassLoader {
+
+        private final Map<String, Class<?>> classes = new HashMap<>();
+
+        private MapClassLoader() {
+            super(null);
+        }
+
+        @Override
+        public Class<?> fastFindClass(final String name) {
+            return classes.get(name);
+        }
+    }
+}